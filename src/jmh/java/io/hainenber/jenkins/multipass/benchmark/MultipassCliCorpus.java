@@ -0,0 +1,39 @@
+package io.hainenber.jenkins.multipass.benchmark;
+
+/**
+ * Synthetic <code>multipass list</code> and <code>multipass find</code> JSON outputs, shaped after the
+ * recorded fixtures in <code>src/test/resources</code> and scaled to a given number of entries.
+ */
+final class MultipassCliCorpus {
+    private MultipassCliCorpus() {}
+
+    static String listOfInstances(int count) {
+        var json = new StringBuilder("{\n  \"list\": [\n");
+        for (int i = 0; i < count; i++) {
+            boolean running = i % 2 == 0;
+            json.append("    {\n")
+                    .append("      \"ipv4\": [")
+                    .append(running ? String.format("\"192.168.%d.%d\"", i / 250, i % 250 + 2) : "")
+                    .append("],\n")
+                    .append(String.format("      \"name\": \"multipass-builder-%d\",\n", i))
+                    .append("      \"release\": \"Ubuntu 24.04 LTS\",\n")
+                    .append(String.format("      \"state\": \"%s\"\n", running ? "Running" : "Stopped"))
+                    .append(i == count - 1 ? "    }\n" : "    },\n");
+        }
+        return json.append("  ]\n}\n").toString();
+    }
+
+    static String listOfDistroAliases(int count) {
+        var json = new StringBuilder("{\n  \"blueprints\": {\n  },\n  \"errors\": [],\n  \"images\": {\n");
+        for (int i = 0; i < count; i++) {
+            json.append(String.format("    \"%d.04\": {\n", i))
+                    .append(String.format("      \"aliases\": [\n        \"release-%d\"\n      ],\n", i))
+                    .append("      \"os\": \"Ubuntu\",\n")
+                    .append(String.format("      \"release\": \"%d.04 LTS\",\n", i))
+                    .append("      \"remote\": \"\",\n")
+                    .append("      \"version\": \"20241112\"\n")
+                    .append(i == count - 1 ? "    }\n" : "    },\n");
+        }
+        return json.append("  }\n}\n").toString();
+    }
+}
@@ -0,0 +1,60 @@
+package io.hainenber.jenkins.multipass.benchmark;
+
+import io.hainenber.jenkins.multipass.sdk.MultipassCliTransport;
+import io.hainenber.jenkins.multipass.sdk.MultipassInstance;
+import io.hainenber.jenkins.multipass.sdk.MultipassOutputDecoder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.commons.exec.CommandLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing cost of <code>multipass list</code> and <code>multipass find</code> outputs.
+ */
+@State(Scope.Benchmark)
+public class MultipassClientBenchmark {
+    @Param({"10", "100", "1000"})
+    public int instanceCount;
+
+    private MultipassCliTransport listTransport;
+    private MultipassCliTransport findTransport;
+
+    /**
+     * Transport replaying a recorded CLI output instead of forking <code>multipass</code>.
+     */
+    private static class ReplayingCliTransport extends MultipassCliTransport {
+        private final byte[] output;
+
+        ReplayingCliTransport(String output) {
+            this.output = output.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public <T> T getOutput(CommandLine cmd, MultipassOutputDecoder<T> decoder) throws IOException {
+            return decoder.decode(new ByteArrayInputStream(output));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        listTransport = new ReplayingCliTransport(MultipassCliCorpus.listOfInstances(instanceCount));
+        findTransport = new ReplayingCliTransport(MultipassCliCorpus.listOfDistroAliases(instanceCount));
+    }
+
+    // The client memoizes distribution aliases, so both benchmarks measure the transport directly.
+    @Benchmark
+    public List<MultipassInstance> getInstances() throws IOException {
+        return listTransport.list();
+    }
+
+    @Benchmark
+    public List<String> getDistributionAlias() throws IOException {
+        return findTransport.findImageAliases();
+    }
+}
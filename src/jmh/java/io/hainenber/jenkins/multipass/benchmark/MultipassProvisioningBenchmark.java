@@ -0,0 +1,95 @@
+package io.hainenber.jenkins.multipass.benchmark;
+
+import hudson.model.Label;
+import io.hainenber.jenkins.multipass.MultipassAgentTemplate;
+import io.hainenber.jenkins.multipass.MultipassCloud;
+import io.hainenber.jenkins.multipass.MultipassHostCapacity;
+import io.hainenber.jenkins.multipass.MultipassProvisioningPlanner;
+import io.hainenber.jenkins.multipass.MultipassProvisioningPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of matching queued labels to templates, of planning how many instances fit on the host,
+ * and of splitting the demand across the matching templates.
+ */
+@JmhBenchmark
+public class MultipassProvisioningBenchmark {
+    @State(Scope.Benchmark)
+    public static class CloudState extends JmhBenchmarkState {
+        @Param({"10", "100", "1000"})
+        public int templateCount;
+
+        MultipassCloud cloud;
+        Label label;
+        MultipassHostCapacity capacity;
+
+        @Override
+        public void setup() {
+            List<MultipassAgentTemplate> templates = new ArrayList<>();
+            for (int i = 0; i < templateCount; i++) {
+                templates.add(new MultipassAgentTemplate(
+                        "ssh", "#cloud-config", "10G", "1G", 1, "noble", "linux builder-" + i, "template-" + i));
+            }
+            cloud = new MultipassCloud("benchmark", templates);
+            label = Label.parse("builder-" + (templateCount - 1)).iterator().next();
+            capacity = new MultipassHostCapacity(
+                    new MultipassHostCapacity.Resources(64, 256L * 1024 * 1024 * 1024, 4L * 1024 * 1024 * 1024 * 1024));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlanState extends JmhBenchmarkState {
+        @Param({"10", "100", "1000"})
+        public int templateCount;
+
+        @Param({"PRIORITY_ORDER", "SMALLEST_FIT", "WEIGHTED"})
+        public MultipassProvisioningPolicy policy;
+
+        List<MultipassProvisioningPlanner.Candidate> candidates;
+        int demand;
+
+        @Override
+        public void setup() {
+            candidates = new ArrayList<>();
+            int executors = 0;
+            for (int i = 0; i < templateCount; i++) {
+                var template = new MultipassAgentTemplate(
+                        "ssh", "#cloud-config", "10G", (1 + i % 4) + "G", 1, "noble", "linux", "template-" + i);
+                // Mix single-executor and multi-executor agents, planned per executor.
+                template.setNumExecutors(1 + i % 4);
+                template.setWeight(1 + i % 3);
+                candidates.add(new MultipassProvisioningPlanner.Candidate(template, 4));
+                executors += template.getExecutorsPerAgent();
+            }
+            // Enough demand to spread agents over every template without exhausting all of them.
+            demand = executors * 2;
+        }
+    }
+
+    @Benchmark
+    public List<MultipassAgentTemplate> getTemplatesByLabel(CloudState state) {
+        return state.cloud.getTemplatesByLabel(state.label);
+    }
+
+    @Benchmark
+    public long planCapacity(CloudState state) {
+        long planned = 0;
+        for (MultipassAgentTemplate template : state.cloud.getTemplatesByLabel(state.label)) {
+            planned += state.capacity.fit(state.cloud, template);
+        }
+        return planned;
+    }
+
+    @Benchmark
+    public Map<MultipassAgentTemplate, Integer> plan(PlanState state) {
+        return MultipassProvisioningPlanner.plan(state.policy, state.demand, Integer.MAX_VALUE, state.candidates);
+    }
+}
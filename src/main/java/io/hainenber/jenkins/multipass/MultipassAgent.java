@@ -7,11 +7,10 @@ import hudson.slaves.AbstractCloudComputer;
 import hudson.slaves.AbstractCloudSlave;
 import hudson.slaves.ComputerLauncher;
 import hudson.slaves.OfflineCause;
-import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import jakarta.annotation.CheckForNull;
 import jakarta.annotation.Nonnull;
 import java.io.IOException;
 import java.io.Serial;
-import java.util.Objects;
 import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.cloudstats.ProvisioningActivity;
@@ -21,8 +20,8 @@ import org.slf4j.LoggerFactory;
 
 public class MultipassAgent extends AbstractCloudSlave implements TrackedItem {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipassAgent.class);
-    private final MultipassCloud cloud;
     private final MultipassAgentTemplate template;
+    private final String endpointAddress;
 
     @Serial
     private static final long serialVersionUID = 2553788927582449937L;
@@ -30,12 +29,16 @@ public class MultipassAgent extends AbstractCloudSlave implements TrackedItem {
     @Nonnull
     private final ProvisioningActivity.Id id;
 
+    // Set on agents loaded from disk, which must be re-attached to their VM rather than given a new one.
+    private transient boolean restored;
+
     /**
      * Constructor
      * @param cloud a {@link MultipassCloud} object;
      * @param name     the name of the agent.
      * @param launcher a {@link hudson.slaves.ComputerLauncher} object.
      * @param template a {@link MultipassAgentTemplate} object.
+     * @param endpointAddress address of the Multipass daemon running the VM, blank for the local daemon.
      * @throws hudson.model.Descriptor.FormException if any.
      * @throws java.io.IOException                   if any.
      */
@@ -43,21 +46,54 @@ public class MultipassAgent extends AbstractCloudSlave implements TrackedItem {
             MultipassCloud cloud,
             @Nonnull String name,
             @Nonnull ComputerLauncher launcher,
-            @Nonnull MultipassAgentTemplate template)
+            @Nonnull MultipassAgentTemplate template,
+            String endpointAddress)
             throws Descriptor.FormException, IOException {
         // TODO: remove this hardcoded value.
         super(name, "/home/jenkins", launcher);
-        this.cloud = cloud;
         this.template = template;
+        this.endpointAddress = endpointAddress;
         this.id = new ProvisioningActivity.Id(cloud.getName(), template.getName(), name);
+        setNumExecutors(template.getExecutorsPerAgent());
+        setRetentionStrategy(template.createRetentionStrategy());
+    }
+
+    @Override
+    protected Object readResolve() {
+        var resolved = super.readResolve();
+        this.restored = true;
+        return resolved;
     }
 
     /**
-     * Get cloud instance associated with this builder agent.
-     * @return a {@link MultipassCloud} object.
+     * Check whether this agent was loaded from disk, e.g. after a controller restart.
+     * @return true if the agent survived a restart.
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Address of the Multipass daemon running this agent's VM.
+     * @return the address, null or blank for the local daemon.
      */
+    public String getEndpointAddress() {
+        return endpointAddress;
+    }
+
+    public String getCloudName() {
+        return id.getCloudName();
+    }
+
+    /**
+     * Get cloud instance associated with this builder agent. The cloud is looked up by name
+     * so that agents loaded from disk share the state of the configured cloud.
+     * @return a {@link MultipassCloud} object, or null if the cloud was removed.
+     */
+    @CheckForNull
     public MultipassCloud getCloud() {
-        return cloud;
+        var jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null && jenkins.getCloud(getCloudName()) instanceof MultipassCloud cloud ? cloud : null;
     }
 
     /**
@@ -80,19 +116,40 @@ public class MultipassAgent extends AbstractCloudSlave implements TrackedItem {
     protected void _terminate(TaskListener listener) {
         listener.getLogger().println("[multipass-cloud]: Terminating agent " + getDisplayName());
 
-        if (getLauncher() instanceof MultipassLauncher) {
-            var instanceName = Objects.requireNonNull(getComputer()).getName();
+        if (getLauncher() instanceof MultipassLauncher || getLauncher() instanceof MultipassInboundLauncher) {
+            var computer = getComputer();
+            if (computer == null) {
+                // Already removed from Jenkins by an earlier termination.
+                return;
+            }
+            var instanceName = computer.getName();
             if (StringUtils.isBlank(instanceName)) {
                 return;
             }
 
             try {
                 LOGGER.info("[multipass-cloud]: Terminating instance named '{}'", instanceName);
-                getComputer().disconnect(new MultipassOfflineCause());
+                var cloud = getCloud();
+                if (cloud != null) {
+                    cloud.getAgentRegistry().transition(instanceName, MultipassAgentRegistry.State.TERMINATING);
+                }
+                computer.disconnect(new MultipassOfflineCause());
                 LOGGER.info("[multipass-cloud]: Disconnect instance named '{}'", instanceName);
-                MultipassClient multipassClient = new MultipassClient();
-                multipassClient.terminateInstance(instanceName);
-                LOGGER.info("[multipass-cloud]: Terminated instance named '{}'", instanceName);
+                // Agents retired after a failed build may be broken, they are deleted rather than reused.
+                boolean reusable = !(computer instanceof MultipassComputer c && c.isRetiredAfterProblems());
+                if (cloud != null
+                        && cloud.getParkedPool().offer(cloud, instanceName, template, getRemoteFS(), reusable)) {
+                    LOGGER.info("[multipass-cloud]: Parking instance named '{}'", instanceName);
+                } else if (cloud != null && cloud.getParkedPool().contains(instanceName)) {
+                    LOGGER.info("[multipass-cloud]: Instance named '{}' is already parked", instanceName);
+                } else if (cloud != null) {
+                    // Deletion is batched with other terminating agents and happens in the background.
+                    cloud.getTerminationQueue().enqueue(instanceName);
+                    LOGGER.info("[multipass-cloud]: Queued instance named '{}' for deletion", instanceName);
+                } else {
+                    MultipassCloud.getSharedMultipassClient(endpointAddress).terminateInstance(instanceName);
+                    LOGGER.info("[multipass-cloud]: Deleted instance named '{}' of a removed cloud", instanceName);
+                }
                 Jenkins.get().removeNode(this);
                 LOGGER.info(
                         "[multipass-cloud]: Removed Multipass instance named '{}' from Jenkins controller",
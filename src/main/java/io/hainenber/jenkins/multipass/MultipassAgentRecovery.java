@@ -0,0 +1,110 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Computer;
+import hudson.model.Node;
+import io.hainenber.jenkins.multipass.sdk.InstanceState;
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import io.hainenber.jenkins.multipass.sdk.MultipassInventory;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import jenkins.model.Jenkins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Startup pass reconciling the Multipass agents loaded from disk with the VMs that survived
+ * the controller restart. Running VMs are re-attached, stopped or suspended ones are started
+ * again and agents whose VM is gone are dropped, all off a single inventory snapshot per daemon.
+ */
+public final class MultipassAgentRecovery {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassAgentRecovery.class);
+
+    private MultipassAgentRecovery() {}
+
+    @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+    @SuppressWarnings("unused")
+    public static void recoverAgents() {
+        // Do not hold up the startup of Jenkins on the Multipass daemon.
+        Computer.threadPoolForRemoting.submit(MultipassAgentRecovery::recover);
+    }
+
+    static void recover() {
+        var jenkins = Jenkins.get();
+        Map<MultipassClient, MultipassInventory> inventories = new IdentityHashMap<>();
+        int reattached = 0;
+        int restarted = 0;
+        int dropped = 0;
+
+        for (Node node : jenkins.getNodes()) {
+            if (!(node instanceof MultipassAgent agent) || !agent.isRestored()) {
+                continue;
+            }
+            var cloud = agent.getCloud();
+            if (cloud == null) {
+                continue;
+            }
+            var instanceName = agent.getNodeName();
+            var client = cloud.getHost(instanceName).getMultipassClient();
+            MultipassInventory inventory;
+            try {
+                inventory = inventories.get(client);
+                if (inventory == null) {
+                    client.invalidateInventory();
+                    inventory = client.getInventory();
+                    inventories.put(client, inventory);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("[multipass-cloud] Cannot list Multipass instances to recover agents of '{}'", cloud, e);
+                continue;
+            }
+
+            var instance = inventory.getInstance(instanceName);
+            var computer = agent.toComputer();
+            if (instance.isEmpty()) {
+                LOGGER.info("[multipass-cloud] Dropping restored agent '{}' whose VM is gone", instanceName);
+                try {
+                    jenkins.removeNode(agent);
+                    dropped++;
+                } catch (IOException e) {
+                    LOGGER.warn("[multipass-cloud] Failed to drop restored agent '{}'", instanceName, e);
+                }
+            } else if (instance.get().getState() == InstanceState.STOPPED
+                    || instance.get().getState() == InstanceState.SUSPENDED) {
+                LOGGER.info("[multipass-cloud] Starting the VM of restored agent '{}'", instanceName);
+                // Restarts take launch tokens, so that recovering many agents at once cannot flood the daemon.
+                cloud.getRateLimiter()
+                        .submit(() -> {
+                            client.startInstance(instanceName);
+                            return null;
+                        })
+                        .whenComplete((ignored, e) -> {
+                            if (e != null) {
+                                LOGGER.warn(
+                                        "[multipass-cloud] Failed to start the VM of restored agent '{}'",
+                                        instanceName,
+                                        e);
+                            } else if (computer != null) {
+                                computer.connect(false);
+                            }
+                        });
+                restarted++;
+            } else {
+                if (computer != null) {
+                    computer.connect(false);
+                }
+                reattached++;
+            }
+        }
+
+        if (reattached + restarted + dropped > 0) {
+            LOGGER.info(
+                    "[multipass-cloud] Recovered Multipass agents after restart: {} re-attached, {} restarted, {} dropped",
+                    reattached,
+                    restarted,
+                    dropped);
+        }
+    }
+}
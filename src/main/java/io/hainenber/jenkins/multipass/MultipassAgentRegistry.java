@@ -0,0 +1,170 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Live agents of one cloud by lifecycle state, kept up to date by the cloud, the launcher,
+ * the agent and its computer. Counts are maintained incrementally so that provisioning
+ * decisions do not need to scan every node of the Jenkins controller.
+ */
+public class MultipassAgentRegistry {
+    /**
+     * Lifecycle state of a Multipass agent.
+     */
+    public enum State {
+        PLANNED,
+        LAUNCHING,
+        ONLINE,
+        TERMINATING
+    }
+
+    private record Entry(String templateName, State state) {}
+
+    // All guarded by this.
+    private final Map<String, Entry> agents = new HashMap<>();
+    private final Map<String, int[]> countsByTemplate = new HashMap<>();
+    private final int[] counts = new int[State.values().length];
+    // Agent name to the System.nanoTime() at which its launch got under way, past any launch slot queue.
+    private final Map<String, Long> launchStartNanos = new HashMap<>();
+
+    /**
+     * Register an agent, or overwrite the state of an already registered one.
+     * @param agentName the agent name.
+     * @param templateName name of the template the agent is created from.
+     * @param state the agent state.
+     */
+    public synchronized void register(String agentName, String templateName, State state) {
+        remove(agentName);
+        agents.put(agentName, new Entry(templateName, state));
+        adjust(templateName, state, 1);
+    }
+
+    /**
+     * Move a registered agent to another state. Unknown agents are ignored.
+     * @param agentName the agent name.
+     * @param state the new state.
+     */
+    public synchronized void transition(String agentName, State state) {
+        var entry = agents.get(agentName);
+        if (entry == null || entry.state() == state) {
+            return;
+        }
+        adjust(entry.templateName(), entry.state(), -1);
+        agents.put(agentName, new Entry(entry.templateName(), state));
+        adjust(entry.templateName(), state, 1);
+        launchStartNanos.remove(agentName);
+    }
+
+    /**
+     * Record that the launch of a launching agent actually started, i.e. it is no longer
+     * waiting for a launch slot. Agents in other states are ignored.
+     * @param agentName the agent name.
+     * @param nowNanos current value of {@link System#nanoTime()}.
+     */
+    public synchronized void markLaunchStarted(String agentName, long nowNanos) {
+        var entry = agents.get(agentName);
+        if (entry != null && entry.state() == State.LAUNCHING) {
+            launchStartNanos.putIfAbsent(agentName, nowNanos);
+        }
+    }
+
+    /**
+     * Time at which the launch of given agent started.
+     * @param agentName the agent name.
+     * @return the {@link System#nanoTime()} of the start, or empty if the agent is not launching or still queued.
+     */
+    public synchronized OptionalLong getLaunchStartNanos(String agentName) {
+        var startNanos = launchStartNanos.get(agentName);
+        return startNanos == null ? OptionalLong.empty() : OptionalLong.of(startNanos);
+    }
+
+    /**
+     * Forget an agent, once it is removed from Jenkins.
+     * @param agentName the agent name.
+     */
+    public synchronized void remove(String agentName) {
+        var entry = agents.remove(agentName);
+        if (entry != null) {
+            adjust(entry.templateName(), entry.state(), -1);
+        }
+        launchStartNanos.remove(agentName);
+    }
+
+    private void adjust(String templateName, State state, int delta) {
+        counts[state.ordinal()] += delta;
+        var templateCounts = countsByTemplate.computeIfAbsent(templateName, k -> new int[State.values().length]);
+        templateCounts[state.ordinal()] += delta;
+    }
+
+    /**
+     * Names of the agents currently in given state.
+     * @param state the agent state.
+     * @return an immutable list of agent names.
+     */
+    public synchronized List<String> getAgentNames(State state) {
+        return agents.entrySet().stream()
+                .filter(e -> e.getValue().state() == state)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Check whether given agent is known to the registry, in any state.
+     * @param agentName the agent name.
+     * @return true if the agent is registered.
+     */
+    public synchronized boolean contains(String agentName) {
+        return agents.containsKey(agentName);
+    }
+
+    public synchronized Optional<State> getState(String agentName) {
+        return Optional.ofNullable(agents.get(agentName)).map(Entry::state);
+    }
+
+    public synchronized int getCount(State state) {
+        return counts[state.ordinal()];
+    }
+
+    public synchronized int getCount(String templateName, State state) {
+        var templateCounts = countsByTemplate.get(templateName);
+        return templateCounts == null ? 0 : templateCounts[state.ordinal()];
+    }
+
+    /**
+     * Number of agents of this cloud that are planned or still launching.
+     * @return the number of agents.
+     */
+    public synchronized int getProvisioningCount() {
+        return getCount(State.PLANNED) + getCount(State.LAUNCHING);
+    }
+
+    /**
+     * Number of agents of given template that are planned or still launching.
+     * @param templateName the template name.
+     * @return the number of agents.
+     */
+    public synchronized int getProvisioningCount(String templateName) {
+        return getCount(templateName, State.PLANNED) + getCount(templateName, State.LAUNCHING);
+    }
+
+    /**
+     * Number of agents of given template that are not being terminated.
+     * @param templateName the template name.
+     * @return the number of agents.
+     */
+    public synchronized int getActiveCount(String templateName) {
+        return getProvisioningCount(templateName) + getCount(templateName, State.ONLINE);
+    }
+
+    /**
+     * Number of agents of this cloud that are not being terminated.
+     * @return the number of agents.
+     */
+    public synchronized int getActiveCount() {
+        return getProvisioningCount() + getCount(State.ONLINE);
+    }
+}
@@ -6,6 +6,7 @@ import com.cloudbees.plugins.credentials.common.StandardUsernameListBoxModel;
 import com.cloudbees.plugins.credentials.domains.SchemeRequirement;
 import com.trilead.ssh2.Connection;
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Computer;
 import hudson.model.Descriptor;
@@ -15,8 +16,8 @@ import hudson.model.Saveable;
 import hudson.model.labels.LabelAtom;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
+import hudson.slaves.ComputerLauncher;
 import hudson.util.ListBoxModel;
-import io.hainenber.jenkins.multipass.sdk.MultipassClient;
 import jakarta.annotation.Nonnull;
 import java.io.IOException;
 import java.io.Serial;
@@ -33,6 +34,7 @@ import org.kohsuke.stapler.QueryParameter;
 public class MultipassAgentTemplate extends AbstractDescribableImpl<MultipassAgentTemplate>
         implements Saveable, Serializable {
     private static final String DEFAULT_AGENT_DISTRIBUTION_ALIAS = "noble";
+    private static final int DEFAULT_IDLE_MINUTES = 10;
 
     @Serial
     private static final long serialVersionUID = 1609229396383244191L;
@@ -45,6 +47,21 @@ public class MultipassAgentTemplate extends AbstractDescribableImpl<MultipassAge
     private String cloudInitConfig;
     private String sshCredentialsId;
     private String name;
+    private int minIdle;
+    private int maxIdle;
+    private boolean useGoldenInstance;
+    private boolean waitForCloudInit;
+    private boolean singleUse;
+    private int maxBuilds;
+    private Integer idleMinutes;
+    private int instanceCap;
+    private int weight;
+    private Integer numExecutors;
+    private MultipassLaunchMode launchMode;
+    private boolean parkOnTerminate;
+    private boolean resetWorkspaceOnPark;
+
+    private transient volatile Set<LabelAtom> labelSet;
 
     @DataBoundConstructor
     public MultipassAgentTemplate(
@@ -191,6 +208,7 @@ public class MultipassAgentTemplate extends AbstractDescribableImpl<MultipassAge
     @DataBoundSetter
     public void setLabels(String labels) {
         this.labels = labels;
+        this.labelSet = null;
     }
 
     /**
@@ -210,8 +228,298 @@ public class MultipassAgentTemplate extends AbstractDescribableImpl<MultipassAge
         this.name = name;
     }
 
+    /**
+     * Getter for field <code>minIdle</code>.
+     * @return number of pre-launched VMs to keep waiting in the warm pool.
+     */
+    public int getMinIdle() {
+        return this.minIdle;
+    }
+
+    /**
+     * Setter for the field <code>minIdle</code>
+     * @param minIdle number of pre-launched VMs to keep waiting in the warm pool.
+     */
+    @DataBoundSetter
+    public void setMinIdle(int minIdle) {
+        this.minIdle = Math.max(minIdle, 0);
+    }
+
+    /**
+     * Getter for field <code>maxIdle</code>.
+     * @return upper bound of idle VMs in the warm pool, never lower than <code>minIdle</code>.
+     */
+    public int getMaxIdle() {
+        return Math.max(this.maxIdle, this.minIdle);
+    }
+
+    /**
+     * Setter for the field <code>maxIdle</code>
+     * @param maxIdle upper bound of idle VMs in the warm pool.
+     */
+    @DataBoundSetter
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = Math.max(maxIdle, 0);
+    }
+
+    /**
+     * Getter for field <code>useGoldenInstance</code>.
+     * @return true if agents are cloned from a pre-built golden instance.
+     */
+    public boolean isUseGoldenInstance() {
+        return this.useGoldenInstance;
+    }
+
+    /**
+     * Setter for the field <code>useGoldenInstance</code>
+     * @param useGoldenInstance whether agents are cloned from a pre-built golden instance.
+     */
+    @DataBoundSetter
+    public void setUseGoldenInstance(boolean useGoldenInstance) {
+        this.useGoldenInstance = useGoldenInstance;
+    }
+
+    /**
+     * Getter for field <code>waitForCloudInit</code>.
+     * @return true if launches wait for <code>cloud-init status --wait</code> before connecting.
+     */
+    public boolean isWaitForCloudInit() {
+        return this.waitForCloudInit;
+    }
+
+    /**
+     * Setter for the field <code>waitForCloudInit</code>
+     * @param waitForCloudInit whether launches wait for cloud-init to finish before connecting.
+     */
+    @DataBoundSetter
+    public void setWaitForCloudInit(boolean waitForCloudInit) {
+        this.waitForCloudInit = waitForCloudInit;
+    }
+
+    /**
+     * Getter for field <code>singleUse</code>.
+     * @return true if every agent runs a single build before being terminated.
+     */
+    public boolean isSingleUse() {
+        return this.singleUse;
+    }
+
+    /**
+     * Setter for the field <code>singleUse</code>
+     * @param singleUse whether every agent runs a single build before being terminated.
+     */
+    @DataBoundSetter
+    public void setSingleUse(boolean singleUse) {
+        this.singleUse = singleUse;
+    }
+
+    /**
+     * Getter for field <code>maxBuilds</code>.
+     * @return number of builds a reused agent runs before being terminated, 0 for no limit.
+     */
+    public int getMaxBuilds() {
+        return this.maxBuilds;
+    }
+
+    /**
+     * Setter for the field <code>maxBuilds</code>
+     * @param maxBuilds number of builds a reused agent runs before being terminated, 0 for no limit.
+     */
+    @DataBoundSetter
+    public void setMaxBuilds(int maxBuilds) {
+        this.maxBuilds = Math.max(maxBuilds, 0);
+    }
+
+    /**
+     * Getter for field <code>idleMinutes</code>.
+     * @return minutes an agent may stay idle before being terminated, 0 to keep idle agents.
+     *         Templates created before the timeout was configurable get the default of 10 minutes.
+     */
+    public int getIdleMinutes() {
+        return this.idleMinutes != null ? this.idleMinutes : DEFAULT_IDLE_MINUTES;
+    }
+
+    /**
+     * Setter for the field <code>idleMinutes</code>
+     * @param idleMinutes minutes an agent may stay idle before being terminated, 0 to keep idle agents.
+     */
+    @DataBoundSetter
+    public void setIdleMinutes(Integer idleMinutes) {
+        this.idleMinutes = idleMinutes == null ? null : Math.max(idleMinutes, 0);
+    }
+
+    /**
+     * Getter for field <code>instanceCap</code>.
+     * @return maximum number of agents launched from this template, 0 for no limit.
+     */
+    public int getInstanceCap() {
+        return this.instanceCap;
+    }
+
+    /**
+     * Setter for the field <code>instanceCap</code>
+     * @param instanceCap maximum number of agents launched from this template, 0 for no limit.
+     */
+    @DataBoundSetter
+    public void setInstanceCap(int instanceCap) {
+        this.instanceCap = Math.max(instanceCap, 0);
+    }
+
+    /**
+     * Getter for field <code>weight</code>.
+     * @return share of agents given to this template by the weighted provisioning policy.
+     */
+    public int getWeight() {
+        return this.weight > 0 ? this.weight : 1;
+    }
+
+    /**
+     * Setter for the field <code>weight</code>
+     * @param weight share of agents given to this template by the weighted provisioning policy.
+     */
+    @DataBoundSetter
+    public void setWeight(int weight) {
+        this.weight = Math.max(weight, 0);
+    }
+
+    /**
+     * Getter for field <code>numExecutors</code>.
+     * @return configured number of executors per agent, 0 to derive it from the CPU count,
+     *         null for templates created before executors were configurable.
+     */
+    public Integer getNumExecutors() {
+        return this.numExecutors;
+    }
+
+    /**
+     * Setter for the field <code>numExecutors</code>
+     * @param numExecutors number of executors per agent, 0 to derive it from the CPU count.
+     */
+    @DataBoundSetter
+    public void setNumExecutors(Integer numExecutors) {
+        this.numExecutors = numExecutors == null ? null : Math.max(numExecutors, 0);
+    }
+
+    /**
+     * Number of executors of every agent launched from this template. Single-use agents
+     * always get one, as they are retired after their first build.
+     * @return a positive number.
+     */
+    public int getExecutorsPerAgent() {
+        if (isSingleUse() || this.numExecutors == null) {
+            return 1;
+        }
+        if (this.numExecutors == 0) {
+            return getCpu() != null && getCpu() > 0 ? getCpu() : 1;
+        }
+        return this.numExecutors;
+    }
+
+    /**
+     * Getter for field <code>launchMode</code>.
+     * @return a {@link MultipassLaunchMode}, SSH unless configured otherwise.
+     */
+    public MultipassLaunchMode getLaunchMode() {
+        return this.launchMode != null ? this.launchMode : MultipassLaunchMode.SSH;
+    }
+
+    /**
+     * Setter for the field <code>launchMode</code>
+     * @param launchMode how the controller connects to agents launched from this template.
+     */
+    @DataBoundSetter
+    public void setLaunchMode(MultipassLaunchMode launchMode) {
+        this.launchMode = launchMode;
+    }
+
+    /**
+     * Getter for field <code>parkOnTerminate</code>.
+     * @return true if finished agents are suspended into the cloud's parked pool instead of being deleted.
+     */
+    public boolean isParkOnTerminate() {
+        return this.parkOnTerminate;
+    }
+
+    /**
+     * Setter for the field <code>parkOnTerminate</code>
+     * @param parkOnTerminate whether finished agents are suspended into the cloud's parked pool.
+     */
+    @DataBoundSetter
+    public void setParkOnTerminate(boolean parkOnTerminate) {
+        this.parkOnTerminate = parkOnTerminate;
+    }
+
+    /**
+     * Getter for field <code>resetWorkspaceOnPark</code>.
+     * @return true if the workspaces of an agent are deleted before its VM is parked.
+     */
+    public boolean isResetWorkspaceOnPark() {
+        return this.resetWorkspaceOnPark;
+    }
+
+    /**
+     * Setter for the field <code>resetWorkspaceOnPark</code>
+     * @param resetWorkspaceOnPark whether the workspaces of an agent are deleted before its VM is parked.
+     */
+    @DataBoundSetter
+    public void setResetWorkspaceOnPark(boolean resetWorkspaceOnPark) {
+        this.resetWorkspaceOnPark = resetWorkspaceOnPark;
+    }
+
+    /**
+     * Check whether the VMs of finished agents are parked rather than deleted. Inbound agents
+     * are never parked, as their agent process is started once per boot by cloud-init.
+     * @return true if VMs of this template may be parked.
+     */
+    public boolean isParkable() {
+        return isParkOnTerminate() && getLaunchMode() != MultipassLaunchMode.INBOUND_WEBSOCKET;
+    }
+
+    /**
+     * Create the launcher of an agent launched from this template.
+     * @param cloud the {@link MultipassCloud} owning the agent.
+     * @return a {@link ComputerLauncher} object.
+     */
+    public ComputerLauncher createLauncher(MultipassCloud cloud) {
+        return switch (getLaunchMode()) {
+            case INBOUND_WEBSOCKET -> new MultipassInboundLauncher(cloud);
+            case MULTIPASS_EXEC -> new MultipassExecLauncher(cloud);
+            case SSH -> new MultipassLauncher(cloud);
+        };
+    }
+
+    /**
+     * Create the retention strategy for agents launched from this template.
+     * @return a {@link MultipassRetentionStrategy} object.
+     */
+    public MultipassRetentionStrategy createRetentionStrategy() {
+        return new MultipassRetentionStrategy(isSingleUse() ? 1 : getMaxBuilds(), getIdleMinutes());
+    }
+
+    /**
+     * Digest of every setting that shapes the launched VM, the launch mode included as pooled VMs
+     * are prepared for one way of connecting. Pre-launched VMs whose digest differs from the
+     * current one were built from an outdated template.
+     * @return a {@link String} object.
+     */
+    public String getSpecHash() {
+        return Util.getDigestOf(String.join(
+                "\n",
+                String.valueOf(getCpu()),
+                String.valueOf(getMemory()),
+                String.valueOf(getDisk()),
+                getDistroAlias(),
+                String.valueOf(getCloudInitConfig()),
+                getLaunchMode().name()));
+    }
+
     public Set<LabelAtom> getLabelSet() {
-        return Label.parse(this.labels);
+        var parsed = this.labelSet;
+        if (parsed == null) {
+            parsed = Collections.unmodifiableSet(Label.parse(this.labels));
+            this.labelSet = parsed;
+        }
+        return parsed;
     }
 
     @Override
@@ -220,18 +528,12 @@ public class MultipassAgentTemplate extends AbstractDescribableImpl<MultipassAge
     @Extension
     @SuppressWarnings("unused")
     public static class DescriptorImpl extends Descriptor<MultipassAgentTemplate> {
-        private final MultipassClient client;
-
-        public DescriptorImpl() {
-            super();
-            this.client = new MultipassClient();
-        }
-
         // Fill out supported Ubuntu distribution aliases
         public ListBoxModel doFillDistroAliasItems() throws IOException {
             final ListBoxModel options = new ListBoxModel();
 
-            List<String> availableDistroAliases = client.getDistributionAlias();
+            List<String> availableDistroAliases =
+                    MultipassCloud.getSharedMultipassClient().getDistributionAlias();
             if (availableDistroAliases.isEmpty()) {
                 options.add(DEFAULT_AGENT_DISTRIBUTION_ALIAS);
             } else {
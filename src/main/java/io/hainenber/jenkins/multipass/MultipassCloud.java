@@ -8,21 +8,29 @@ import hudson.model.Computer;
 import hudson.model.Descriptor;
 import hudson.model.Label;
 import hudson.model.Node;
-import hudson.model.labels.LabelAtom;
 import hudson.slaves.Cloud;
+import hudson.slaves.ComputerLauncher;
 import hudson.slaves.NodeProvisioner;
+import hudson.util.FormValidation;
+import io.hainenber.jenkins.multipass.sdk.MultipassCliTransport;
 import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import io.hainenber.jenkins.multipass.sdk.MultipassGrpcTransport;
+import io.hainenber.jenkins.multipass.sdk.MultipassSize;
+import io.hainenber.jenkins.multipass.sdk.MultipassTransport;
 import jakarta.annotation.Nonnull;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Semaphore;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.commons.lang.StringUtils;
@@ -46,11 +54,39 @@ import org.slf4j.LoggerFactory;
  */
 public class MultipassCloud extends Cloud {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipassCloud.class);
+    private static final int DEFAULT_LAUNCH_TIMEOUT_SECONDS = 600;
+    private static final int DEFAULT_LAUNCH_BURST = 10;
+    private static final int INSTANCE_SUFFIX_LENGTH = 4;
+    private static final int DEFAULT_LAUNCHES_PER_MINUTE = 30;
+    private static final String DEFAULT_PARKED_MEMORY_BUDGET = "8G";
+    private static final String DEFAULT_PARKED_DISK_BUDGET = "50G";
+    private static final String TRANSPORT =
+            SystemProperties.getString(MultipassCloud.class.getName() + ".transport", "cli");
 
     private List<MultipassAgentTemplate> templates;
-
-    private transient MultipassClient client;
-    private transient long lastProvisionTime = 0;
+    private int maxConcurrentLaunches;
+    private int launchTimeoutSeconds;
+    private double cpuOvercommitRatio;
+    private double memoryOvercommitRatio;
+    private double diskOvercommitRatio;
+    private MultipassProvisioningPolicy provisioningPolicy;
+    private int instanceCap;
+    private int launchBurst;
+    private int launchesPerMinute;
+    private List<MultipassEndpoint> endpoints;
+    private MultipassPlacementPolicy placementPolicy;
+    private String parkedMemoryBudget;
+    private String parkedDiskBudget;
+
+    private static final Map<String, MultipassClient> sharedClients = new HashMap<>();
+    private static final Map<String, MultipassHostCapacity> sharedHostCapacities = new HashMap<>();
+    private static final Map<String, MultipassCloudState> sharedCloudStates = new HashMap<>();
+    private transient volatile MultipassTemplateIndex templateIndex;
+    private transient MultipassGoldenInstances goldenInstances;
+    private transient MultipassTerminationQueue terminationQueue;
+    private transient List<MultipassHost> hosts;
+    private transient Map<String, MultipassHost> placements;
+    private transient MultipassLaunchMetrics launchMetrics;
 
     /**
      * Constructor for MultipassCloud
@@ -64,23 +100,30 @@ public class MultipassCloud extends Cloud {
                         : String.format(
                                 "multipass_cloud_%s", jenkinsController().clouds.size()));
         this.templates = templates == null ? Collections.emptyList() : templates;
+        this.templateIndex = new MultipassTemplateIndex(this.templates);
         LOGGER.info("[multipass-cloud] Initializing Cloud {}", this);
     }
 
+    protected Object readResolve() {
+        this.templateIndex = new MultipassTemplateIndex(this.templates == null ? List.of() : this.templates);
+        return this;
+    }
+
+    /** Getter for the field <code>templateIndex</code>
+     *
+     * @return a {@link MultipassTemplateIndex}
+     */
+    public MultipassTemplateIndex getTemplateIndex() {
+        var index = this.templateIndex;
+        return index == null ? MultipassTemplateIndex.EMPTY : index;
+    }
+
     public List<MultipassAgentTemplate> getTemplatesByLabel(Label label) {
-        return this.templates != null
-                ? this.templates.stream()
-                        .filter(t -> t != null && label.matches(t.getLabelSet()))
-                        .toList()
-                : Collections.emptyList();
+        return getTemplateIndex().getTemplatesByLabel(label);
     }
 
     public List<MultipassAgentTemplate> getTemplatesByName(String templateName) {
-        return this.templates != null
-                ? this.templates.stream()
-                        .filter(t -> t != null && t.getName().equals(templateName))
-                        .toList()
-                : Collections.emptyList();
+        return getTemplateIndex().getTemplatesByName(templateName);
     }
 
     /**
@@ -93,15 +136,391 @@ public class MultipassCloud extends Cloud {
         return Objects.requireNonNull(Jenkins.getInstanceOrNull());
     }
 
-    /** Getter for the field <code>client</code>
+    /**
+     * Get the client shared by every cloud, agent and descriptor talking to the local Multipass daemon,
+     * so that they share one inventory cache and one bound on concurrent <code>multipass</code> processes.
+     *
+     * @return a {@link MultipassClient}
+     */
+    public static MultipassClient getSharedMultipassClient() {
+        return getSharedMultipassClient(null);
+    }
+
+    /**
+     * Get the client shared by every cloud and agent talking to the Multipass daemon at given address.
+     *
+     * @param address address of the daemon, null or blank for the local daemon.
+     * @return a {@link MultipassClient}
+     */
+    public static MultipassClient getSharedMultipassClient(String address) {
+        return getSharedMultipassClient(findEndpoint(address));
+    }
+
+    /**
+     * Get the client shared by every cloud and agent talking to the Multipass daemon of given endpoint.
+     * The client is created with the settings of the first endpoint asking for it.
+     *
+     * @param endpoint a {@link MultipassEndpoint} object.
+     * @return a {@link MultipassClient}
+     */
+    static synchronized MultipassClient getSharedMultipassClient(MultipassEndpoint endpoint) {
+        return sharedClients.computeIfAbsent(
+                endpoint.getAddress(),
+                a -> new MultipassClient(newTransport(endpoint), MultipassClient.DEFAULT_INVENTORY_TTL_MILLIS));
+    }
+
+    /**
+     * Find the configured endpoint of given address among the Multipass clouds, so that its settings
+     * apply to clients created by agents and descriptors as well.
+     */
+    private static MultipassEndpoint findEndpoint(String address) {
+        var normalized = StringUtils.trimToEmpty(address);
+        var jenkins = Jenkins.getInstanceOrNull();
+        if (jenkins != null) {
+            for (Cloud cloud : jenkins.clouds) {
+                if (cloud instanceof MultipassCloud multipassCloud) {
+                    for (MultipassEndpoint endpoint : multipassCloud.getEndpoints()) {
+                        if (endpoint.getAddress().equals(normalized)) {
+                            return endpoint;
+                        }
+                    }
+                }
+            }
+        }
+        return new MultipassEndpoint(normalized);
+    }
+
+    /**
+     * Create the transport to the daemon of given endpoint, the <code>multipass</code> CLI unless the
+     * <code>transport</code> system property selects the daemon's gRPC API and the endpoint has the
+     * certificates to reach it.
+     */
+    private static MultipassTransport newTransport(MultipassEndpoint endpoint) {
+        var address = endpoint.getAddress();
+        var cliTransport = new MultipassCliTransport(address, MultipassCliTransport.DEFAULT_MAX_PARALLEL_COMMANDS);
+        if (!"grpc".equalsIgnoreCase(TRANSPORT)) {
+            return cliTransport;
+        }
+        var certificates = endpoint.getGrpcCertificates();
+        if (certificates.isEmpty()) {
+            LOGGER.info(
+                    "[multipass-cloud] No daemon certificate configured for endpoint '{}', using the multipass CLI",
+                    endpoint);
+            return cliTransport;
+        }
+        try {
+            return MultipassGrpcTransport.connect(address, certificates.get(), cliTransport);
+        } catch (IOException | RuntimeException | LinkageError e) {
+            // LinkageError: gRPC or its native libraries cannot be loaded on this platform.
+            LOGGER.warn(
+                    "[multipass-cloud] Cannot connect to the gRPC API of multipassd at '{}', using the multipass CLI",
+                    endpoint,
+                    e);
+            return cliTransport;
+        }
+    }
+
+    /**
+     * Get the capacity model shared by every cloud placing VMs through given endpoint, so that clouds
+     * on the same daemon do not each assume they own the whole host. It starts with the agents of every
+     * cloud that already run there reserved, and takes up the latest configured resources of the endpoint.
+     *
+     * @param endpoint a {@link MultipassEndpoint} object.
+     * @return a {@link MultipassHostCapacity}
+     */
+    static synchronized MultipassHostCapacity getSharedHostCapacity(MultipassEndpoint endpoint) {
+        var capacity = sharedHostCapacities.get(endpoint.getAddress());
+        if (capacity == null) {
+            var existingAgents = jenkinsController().getNodes().stream()
+                    .filter(MultipassAgent.class::isInstance)
+                    .map(MultipassAgent.class::cast)
+                    .filter(a -> StringUtils.trimToEmpty(a.getEndpointAddress()).equals(endpoint.getAddress()))
+                    .toList();
+            capacity = new MultipassHostCapacity(MultipassHostCapacity.Resources.NONE);
+            for (MultipassAgent agent : existingAgents) {
+                capacity.reserve(agent.getNodeName(), agent.getTemplate());
+            }
+            sharedHostCapacities.put(endpoint.getAddress(), capacity);
+        }
+        capacity.setHostResources(endpoint.getHostResources(capacity.getReserved()));
+        return capacity;
+    }
+
+    /**
+     * Get the runtime state of the cloud with given name, which a reconfigured cloud takes over
+     * from the instance it replaces.
+     *
+     * @param name the cloud name.
+     * @return a {@link MultipassCloudState}
+     */
+    static synchronized MultipassCloudState getSharedCloudState(String name) {
+        return sharedCloudStates.computeIfAbsent(name, n -> new MultipassCloudState());
+    }
+
+    /** Get the client of the first endpoint of this cloud, the local daemon unless configured otherwise.
      *
      * @return a {@link MultipassClient}
      */
-    public synchronized MultipassClient getMultipassClient() {
-        if (this.client == null) {
-            this.client = new MultipassClient();
+    public MultipassClient getMultipassClient() {
+        return getHosts().get(0).getMultipassClient();
+    }
+
+    /** Getter for the field <code>warmPool</code>
+     *
+     * @return a {@link MultipassWarmPool}
+     */
+    public MultipassWarmPool getWarmPool() {
+        var state = getSharedCloudState(getName());
+        synchronized (state) {
+            if (state.warmPool == null) {
+                state.warmPool = new MultipassWarmPool();
+            }
+            return state.warmPool;
+        }
+    }
+
+    /** Getter for the field <code>parkedPool</code>
+     *
+     * @return a {@link MultipassParkedPool}
+     */
+    public MultipassParkedPool getParkedPool() {
+        var state = getSharedCloudState(getName());
+        synchronized (state) {
+            if (state.parkedPool == null) {
+                state.parkedPool = new MultipassParkedPool();
+            }
+            return state.parkedPool;
+        }
+    }
+
+    /**
+     * Get the hosts of this cloud, one per endpoint, with their capacity seeded with the agents
+     * of this cloud that already exist.
+     * @return an immutable list of {@link MultipassHost}, never empty.
+     */
+    public synchronized List<MultipassHost> getHosts() {
+        if (this.hosts == null) {
+            var hosts = new ArrayList<MultipassHost>();
+            for (MultipassEndpoint endpoint : getEndpoints()) {
+                hosts.add(new MultipassHost(
+                        endpoint, getSharedMultipassClient(endpoint), getSharedHostCapacity(endpoint)));
+            }
+            this.hosts = List.copyOf(hosts);
+            // Placements made before the cloud was reconfigured move to the host of the same address,
+            // those on a removed endpoint keep their old host so that its reservation is released.
+            this.placements = getSharedCloudState(getName()).placements;
+            this.placements.replaceAll((instanceName, placed) -> this.hosts.stream()
+                    .filter(h -> h.getAddress().equals(placed.getAddress()))
+                    .findFirst()
+                    .orElse(placed));
+            jenkinsController().getNodes().stream()
+                    .filter(MultipassAgent.class::isInstance)
+                    .map(MultipassAgent.class::cast)
+                    .filter(a -> getName().equals(a.getCloudName()))
+                    .forEach(a -> {
+                        var host = getHostByAddress(a.getEndpointAddress());
+                        host.getHostCapacity().reserve(a.getNodeName(), a.getTemplate());
+                        this.placements.put(a.getNodeName(), host);
+                    });
+        }
+        return this.hosts;
+    }
+
+    private MultipassHost getHostByAddress(String address) {
+        var normalized = StringUtils.trimToEmpty(address);
+        // Agents of an endpoint that was since removed stay with the first host.
+        return this.hosts.stream()
+                .filter(h -> h.getAddress().equals(normalized))
+                .findFirst()
+                .orElse(this.hosts.get(0));
+    }
+
+    /**
+     * Get the host given instance was placed on.
+     * @param instanceName the instance name.
+     * @return a {@link MultipassHost} object, the first host for instances placed by no one.
+     */
+    public MultipassHost getHost(String instanceName) {
+        var hosts = getHosts();
+        var host = placements.get(instanceName);
+        return host != null ? host : hosts.get(0);
+    }
+
+    /**
+     * Choose a host with the placement policy and reserve the resources of a new instance on it.
+     * @param instanceName the instance name.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return the host the instance is placed on, or empty if it fits on no host.
+     */
+    public synchronized Optional<MultipassHost> reserveHost(String instanceName, MultipassAgentTemplate template) {
+        var placed = placements == null ? null : placements.get(instanceName);
+        if (placed != null) {
+            return Optional.of(placed);
+        }
+        var host = getPlacementPolicy().choose(this, template, getHosts());
+        if (host.isEmpty() || !host.get().getHostCapacity().tryReserve(this, instanceName, template)) {
+            return Optional.empty();
+        }
+        placements.put(instanceName, host.get());
+        return host;
+    }
+
+    /**
+     * Remember the host of an instance this cloud did not place itself, e.g. a leaked one.
+     * @param instanceName the instance name.
+     * @param host the {@link MultipassHost} running the instance.
+     */
+    void recordPlacement(String instanceName, MultipassHost host) {
+        getHosts();
+        placements.putIfAbsent(instanceName, host);
+    }
+
+    /**
+     * Release the resources held by a deleted instance on its host.
+     * @param instanceName the instance name.
+     */
+    public void releaseHost(String instanceName) {
+        getHosts();
+        var host = placements.remove(instanceName);
+        if (host != null) {
+            host.getHostCapacity().release(instanceName);
+        }
+    }
+
+    /**
+     * Number of additional instances of given template that fit on the hosts of this cloud.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return a non-negative number.
+     */
+    public long fit(MultipassAgentTemplate template) {
+        long fit = 0;
+        for (MultipassHost host : getHosts()) {
+            long hostFit = host.getHostCapacity().fit(this, template);
+            fit = hostFit > Long.MAX_VALUE - fit ? Long.MAX_VALUE : fit + hostFit;
+        }
+        return fit;
+    }
+
+    /**
+     * Get the registry of this cloud's live agents, seeded with the agents that already exist.
+     * @return a {@link MultipassAgentRegistry} object.
+     */
+    public MultipassAgentRegistry getAgentRegistry() {
+        var state = getSharedCloudState(getName());
+        synchronized (state) {
+            if (state.agentRegistry == null) {
+                var registry = new MultipassAgentRegistry();
+                jenkinsController().getNodes().stream()
+                        .filter(MultipassAgent.class::isInstance)
+                        .map(MultipassAgent.class::cast)
+                        .filter(a -> getName().equals(a.getCloudName()))
+                        .forEach(a -> {
+                            var computer = a.toComputer();
+                            registry.register(
+                                    a.getNodeName(),
+                                    a.getTemplate().getName(),
+                                    computer != null && computer.isOnline()
+                                            ? MultipassAgentRegistry.State.ONLINE
+                                            : MultipassAgentRegistry.State.LAUNCHING);
+                        });
+                state.agentRegistry = registry;
+            }
+            return state.agentRegistry;
+        }
+    }
+
+    /** Getter for the field <code>launchMetrics</code>
+     *
+     * @return a {@link MultipassLaunchMetrics}
+     */
+    public synchronized MultipassLaunchMetrics getLaunchMetrics() {
+        if (this.launchMetrics == null) {
+            this.launchMetrics = new MultipassLaunchMetrics();
+        }
+        return this.launchMetrics;
+    }
+
+    /**
+     * Get the semaphore bounding how many agents of this cloud are launched at the same time.
+     * @return a {@link Semaphore} object.
+     */
+    public Semaphore getLaunchSemaphore() {
+        int permits = getMaxConcurrentLaunches();
+        var state = getSharedCloudState(getName());
+        synchronized (state) {
+            // Launches holding a permit of a replaced semaphore release it to the old one, which is harmless.
+            if (state.launchSemaphore == null || state.launchSemaphorePermits != permits) {
+                state.launchSemaphore = new Semaphore(permits, true);
+                state.launchSemaphorePermits = permits;
+            }
+            return state.launchSemaphore;
+        }
+    }
+
+    /**
+     * Get the token bucket pacing agent creation, updated with the current limits.
+     * @return a {@link MultipassRateLimiter} object.
+     */
+    public MultipassRateLimiter getRateLimiter() {
+        var state = getSharedCloudState(getName());
+        synchronized (state) {
+            if (state.rateLimiter == null) {
+                state.rateLimiter = new MultipassRateLimiter(
+                        Computer.threadPoolForRemoting, getLaunchBurst(), getLaunchesPerMinute());
+            } else {
+                state.rateLimiter.configure(getLaunchBurst(), getLaunchesPerMinute());
+            }
+            return state.rateLimiter;
         }
-        return this.client;
+    }
+
+    /** Getter for the field <code>terminationQueue</code>
+     *
+     * @return a {@link MultipassTerminationQueue}
+     */
+    public synchronized MultipassTerminationQueue getTerminationQueue() {
+        if (this.terminationQueue == null) {
+            this.terminationQueue = new MultipassTerminationQueue(this);
+        }
+        return this.terminationQueue;
+    }
+
+    /** Getter for the field <code>goldenInstances</code>
+     *
+     * @return a {@link MultipassGoldenInstances}
+     */
+    public synchronized MultipassGoldenInstances getGoldenInstances() {
+        if (this.goldenInstances == null) {
+            this.goldenInstances = new MultipassGoldenInstances();
+        }
+        return this.goldenInstances;
+    }
+
+    /**
+     * Create a Multipass VM shaped after given template, either with a full launch
+     * or by cloning the template's golden instance.
+     * @param instanceName name of the new Multipass VM.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @throws IOException if Multipass fails to launch the VM.
+     */
+    public void launchInstance(String instanceName, MultipassAgentTemplate template) throws IOException {
+        // Inbound agents get their identity from cloud-init, which clones of a golden instance do not run.
+        boolean inbound = template.getLaunchMode() == MultipassLaunchMode.INBOUND_WEBSOCKET;
+        if (template.isUseGoldenInstance() && !inbound) {
+            getGoldenInstances().cloneInstance(this, getHost(instanceName), instanceName, template);
+            return;
+        }
+        getHost(instanceName)
+                .getMultipassClient()
+                .createInstance(
+                        instanceName,
+                        inbound
+                                ? MultipassInboundLauncher.createCloudInit(this, instanceName, template)
+                                : template.getCloudInitConfig(),
+                        template.getCpu(),
+                        template.getMemory(),
+                        template.getDisk(),
+                        template.getDistroAlias());
     }
 
     /** {@inheritDoc} */
@@ -120,69 +539,109 @@ public class MultipassCloud extends Cloud {
             return Collections.emptyList();
         }
 
-        // Guard against double-provisioning with a 500ms cooldown check
-        long timeDiff = System.currentTimeMillis() - lastProvisionTime;
-        if (timeDiff < 500) {
-            LOGGER.info(
-                    "[multipass-cloud] Provision of {} skipped, still on cooldown ({}ms of 500ms)",
-                    excessWorkload,
-                    timeDiff);
-            return nodeList;
-        }
-
+        // Split the demand once across matching templates, within their caps and the host capacity.
+        var registry = getAgentRegistry();
+        var candidates = new ArrayList<MultipassProvisioningPlanner.Candidate>();
+        int currentlyProvisioningExecutorCount = 0;
         for (MultipassAgentTemplate t : matchingTemplates) {
-            String labelName = label == null ? t.getLabels() : label.getDisplayName();
-            long currentlyProvisioningInstanceCount = getCurrentlyProvisionedAgentCount();
-            long numInstancesToLaunch = Math.max(excessWorkload - currentlyProvisioningInstanceCount, 0);
-            LOGGER.info(
-                    "[multipass-cloud] Provisioning {} nodes for label '{}' ({} already provisioning)",
-                    numInstancesToLaunch,
-                    labelName,
-                    currentlyProvisioningInstanceCount);
-
-            // Initializing builder nodes and add to list of provisioned instances.
-            for (int i = 0; i < numInstancesToLaunch; i++) {
-                final String instanceName = createInstanceName();
-                final MultipassCloud cloud = this;
-                AtomicReference<ProvisioningActivity.Id> provisioningId = new AtomicReference<>();
-                final Future<Node> nodeResolver = Computer.threadPoolForRemoting.submit(() -> {
-                    MultipassLauncher launcher = new MultipassLauncher(cloud);
-                    try {
-                        MultipassAgent agent = new MultipassAgent(cloud, instanceName, launcher, t);
-                        agent.setLabelString(t.getLabels());
-                        provisioningId.set(agent.getId());
-                        jenkinsController().addNode(agent);
-                        return agent;
-                    } catch (Descriptor.FormException | IOException e) {
-                        LOGGER.error("[multipass-cloud] Exception when initializing new Multipass agent: %s", e);
-                        return null;
-                    }
-                });
-
-                if (provisioningId.get() == null) {
-                    provisioningId.set(new ProvisioningActivity.Id(cloud.getName(), t.getName()));
-                }
-
-                // TODO: remove hard-coded value of executor number and make it configurable
-                nodeList.add(new TrackedPlannedNode(provisioningId.get(), 1, nodeResolver));
+            // Executors of agents still on their way are filled before any new VM is planned.
+            currentlyProvisioningExecutorCount +=
+                    registry.getProvisioningCount(t.getName()) * t.getExecutorsPerAgent();
+            long headroom = getParkedPool().getParkedCount(t) + getWarmPool().getIdleCount(t) + fit(t);
+            if (t.getInstanceCap() > 0) {
+                headroom = Math.min(headroom, t.getInstanceCap() - registry.getActiveCount(t.getName()));
             }
+            candidates.add(new MultipassProvisioningPlanner.Candidate(t, (int) Math.min(headroom, Integer.MAX_VALUE)));
+        }
+        int demand = Math.max(excessWorkload - currentlyProvisioningExecutorCount, 0);
+        int cloudHeadroom = instanceCap > 0 ? instanceCap - registry.getActiveCount() : Integer.MAX_VALUE;
+        var plan = MultipassProvisioningPlanner.plan(getProvisioningPolicy(), demand, cloudHeadroom, candidates);
+        LOGGER.info(
+                "[multipass-cloud] Provisioning {} nodes for {} executors of label '{}' ({} executors already provisioning)",
+                plan.values().stream().mapToInt(Integer::intValue).sum(),
+                demand,
+                label == null ? "" : label.getDisplayName(),
+                currentlyProvisioningExecutorCount);
+
+        for (var planEntry : plan.entrySet()) {
+            nodeList.addAll(planAgents(planEntry.getKey(), planEntry.getValue()));
+        }
 
-            lastProvisionTime = System.currentTimeMillis();
+        // Refill warm pools drained by this round in the background.
+        if (!nodeList.isEmpty()) {
+            Computer.threadPoolForRemoting.submit(() -> getWarmPool().maintain(this));
         }
 
         return nodeList;
     }
 
     /**
-     * Find the number of {@link MultipassAgent} instances still connecting
-     * to Jenkins controller
+     * Plan exactly one agent of given template, as asked for from the "Nodes" page,
+     * within the template's and the cloud's instance caps.
+     * @param t a {@link MultipassAgentTemplate} object.
+     * @return the planned node, or empty if a cap is reached or the hosts have no capacity left.
      */
-    private long getCurrentlyProvisionedAgentCount() {
-        return jenkinsController().getNodes().stream()
-                .filter(MultipassAgent.class::isInstance)
-                .map(MultipassAgent.class::cast)
-                .filter(a -> a.getLauncher().isLaunchSupported())
-                .count();
+    synchronized Optional<NodeProvisioner.PlannedNode> provisionOne(MultipassAgentTemplate t) {
+        var registry = getAgentRegistry();
+        if ((t.getInstanceCap() > 0 && registry.getActiveCount(t.getName()) >= t.getInstanceCap())
+                || (instanceCap > 0 && registry.getActiveCount() >= instanceCap)) {
+            LOGGER.info("[multipass-cloud] Instance cap reached, not provisioning another '{}' agent", t.getName());
+            return Optional.empty();
+        }
+        var node = planAgents(t, 1).stream().findFirst();
+        if (node.isPresent()) {
+            Computer.threadPoolForRemoting.submit(() -> getWarmPool().maintain(this));
+        }
+        return node;
+    }
+
+    /**
+     * Plan agents of given template, resuming parked VMs or taking warm ones before launching new VMs.
+     * @param t a {@link MultipassAgentTemplate} object.
+     * @param numInstancesToLaunch number of agents to plan.
+     * @return the planned nodes, fewer than asked for if the hosts ran out of capacity.
+     */
+    private List<NodeProvisioner.PlannedNode> planAgents(MultipassAgentTemplate t, int numInstancesToLaunch) {
+        var nodeList = new ArrayList<NodeProvisioner.PlannedNode>();
+        var registry = getAgentRegistry();
+
+        // Initializing builder nodes and add to list of provisioned instances.
+        for (int i = 0; i < numInstancesToLaunch; i++) {
+            // Prefer resuming a parked VM, then an already launched VM from the warm pool, over a cold launch.
+            // Pooled VMs already hold their reservation on the host.
+            var pooledInstanceName = getParkedPool().acquire(t).or(() -> getWarmPool().acquire(t));
+            final String instanceName = pooledInstanceName.orElseGet(this::createInstanceName);
+            if (pooledInstanceName.isEmpty() && reserveHost(instanceName, t).isEmpty()) {
+                LOGGER.info(
+                        "[multipass-cloud] Hosts have no capacity left for another '{}' instance, planned {} of {}",
+                        t.getName(),
+                        i,
+                        numInstancesToLaunch);
+                break;
+            }
+            registry.register(instanceName, t.getName(), MultipassAgentRegistry.State.PLANNED);
+            final MultipassCloud cloud = this;
+            var provisioningId = new ProvisioningActivity.Id(getName(), t.getName(), instanceName);
+            // Node creation waits for a launch token, the planned node keeps standing for the demand meanwhile.
+            final Future<Node> nodeResolver = getRateLimiter().submit(() -> {
+                ComputerLauncher launcher = t.createLauncher(cloud);
+                try {
+                    MultipassAgent agent = new MultipassAgent(
+                            cloud, instanceName, launcher, t, getHost(instanceName).getAddress());
+                    agent.setLabelString(t.getLabels());
+                    jenkinsController().addNode(agent);
+                    return agent;
+                } catch (Descriptor.FormException | IOException e) {
+                    LOGGER.error("[multipass-cloud] Exception when initializing new Multipass agent: %s", e);
+                    registry.remove(instanceName);
+                    cloud.getTerminationQueue().enqueue(instanceName);
+                    return null;
+                }
+            });
+
+            nodeList.add(new TrackedPlannedNode(provisioningId, t.getExecutorsPerAgent(), nodeResolver));
+        }
+        return nodeList;
     }
 
     /** {@inheritDoc} */
@@ -206,14 +665,223 @@ public class MultipassCloud extends Cloud {
     @DataBoundSetter
     public void setTemplates(List<MultipassAgentTemplate> templates) {
         this.templates = templates;
+        this.templateIndex = new MultipassTemplateIndex(templates == null ? List.of() : templates);
+    }
+
+    /**
+     * Getter for the field <code>launchTimeoutSeconds</code>.
+     * @return how long an agent may take from launch to an established SSH connection.
+     */
+    public int getLaunchTimeoutSeconds() {
+        return launchTimeoutSeconds > 0 ? launchTimeoutSeconds : DEFAULT_LAUNCH_TIMEOUT_SECONDS;
+    }
+
+    @DataBoundSetter
+    public void setLaunchTimeoutSeconds(int launchTimeoutSeconds) {
+        this.launchTimeoutSeconds = Math.max(launchTimeoutSeconds, 0);
+    }
+
+    /**
+     * Getter for the field <code>provisioningPolicy</code>.
+     * @return how agents are spread across templates matching the same label.
+     */
+    public MultipassProvisioningPolicy getProvisioningPolicy() {
+        return provisioningPolicy != null ? provisioningPolicy : MultipassProvisioningPolicy.PRIORITY_ORDER;
+    }
+
+    @DataBoundSetter
+    public void setProvisioningPolicy(MultipassProvisioningPolicy provisioningPolicy) {
+        this.provisioningPolicy = provisioningPolicy;
+    }
+
+    /**
+     * Getter for the field <code>instanceCap</code>.
+     * @return maximum number of agents of this cloud, 0 for no limit.
+     */
+    public int getInstanceCap() {
+        return instanceCap;
+    }
+
+    @DataBoundSetter
+    public void setInstanceCap(int instanceCap) {
+        this.instanceCap = Math.max(instanceCap, 0);
+    }
+
+    /**
+     * Getter for the field <code>endpoints</code>.
+     * @return the configured endpoints, or the local daemon if there are none.
+     */
+    public List<MultipassEndpoint> getEndpoints() {
+        return endpoints == null || endpoints.isEmpty() ? List.of(MultipassEndpoint.local()) : endpoints;
+    }
+
+    @DataBoundSetter
+    public void setEndpoints(List<MultipassEndpoint> endpoints) {
+        this.endpoints = endpoints == null ? null : List.copyOf(endpoints);
+    }
+
+    /**
+     * Getter for the field <code>placementPolicy</code>.
+     * @return a {@link MultipassPlacementPolicy} object.
+     */
+    public MultipassPlacementPolicy getPlacementPolicy() {
+        return placementPolicy != null ? placementPolicy : MultipassPlacementPolicy.LEAST_LOADED;
+    }
+
+    @DataBoundSetter
+    public void setPlacementPolicy(MultipassPlacementPolicy placementPolicy) {
+        this.placementPolicy = placementPolicy;
+    }
+
+    /**
+     * Getter for the field <code>launchBurst</code>.
+     * @return number of agents that may be created at once before rate limiting applies.
+     */
+    public int getLaunchBurst() {
+        return launchBurst > 0 ? launchBurst : DEFAULT_LAUNCH_BURST;
+    }
+
+    @DataBoundSetter
+    public void setLaunchBurst(int launchBurst) {
+        this.launchBurst = Math.max(launchBurst, 0);
+    }
+
+    /**
+     * Getter for the field <code>launchesPerMinute</code>.
+     * @return steady number of agents created per minute once the burst is used up.
+     */
+    public int getLaunchesPerMinute() {
+        return launchesPerMinute > 0 ? launchesPerMinute : DEFAULT_LAUNCHES_PER_MINUTE;
+    }
+
+    @DataBoundSetter
+    public void setLaunchesPerMinute(int launchesPerMinute) {
+        this.launchesPerMinute = Math.max(launchesPerMinute, 0);
+    }
+
+    /**
+     * Getter for the field <code>parkedMemoryBudget</code>.
+     * @return total memory of the parked VMs of this cloud, e.g. <code>8G</code>, null for the default.
+     */
+    public String getParkedMemoryBudget() {
+        return parkedMemoryBudget;
+    }
+
+    @DataBoundSetter
+    public void setParkedMemoryBudget(String parkedMemoryBudget) {
+        this.parkedMemoryBudget = StringUtils.trimToNull(parkedMemoryBudget);
+    }
+
+    /**
+     * Getter for the field <code>parkedDiskBudget</code>.
+     * @return total disk of the parked VMs of this cloud, e.g. <code>50G</code>, null for the default.
+     */
+    public String getParkedDiskBudget() {
+        return parkedDiskBudget;
+    }
+
+    @DataBoundSetter
+    public void setParkedDiskBudget(String parkedDiskBudget) {
+        this.parkedDiskBudget = StringUtils.trimToNull(parkedDiskBudget);
+    }
+
+    /**
+     * Memory and disk that the parked VMs of this cloud may hold in total.
+     * @return a {@link MultipassHostCapacity.Resources} object without CPUs.
+     */
+    public MultipassHostCapacity.Resources getParkedBudget() {
+        return new MultipassHostCapacity.Resources(
+                0,
+                parseBudget(parkedMemoryBudget, DEFAULT_PARKED_MEMORY_BUDGET),
+                parseBudget(parkedDiskBudget, DEFAULT_PARKED_DISK_BUDGET));
+    }
+
+    private static long parseBudget(String size, String defaultSize) {
+        try {
+            return MultipassSize.parseBytes(StringUtils.defaultIfBlank(size, defaultSize));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("[multipass-cloud] Cannot parse parked budget '{}', using {}", size, defaultSize);
+            return MultipassSize.parseBytes(defaultSize);
+        }
+    }
+
+    /**
+     * Getter for the field <code>cpuOvercommitRatio</code>.
+     * @return how many virtual CPUs may be allocated per host core, 1.0 by default.
+     */
+    public double getCpuOvercommitRatio() {
+        return cpuOvercommitRatio > 0 ? cpuOvercommitRatio : 1.0;
+    }
+
+    @DataBoundSetter
+    public void setCpuOvercommitRatio(double cpuOvercommitRatio) {
+        this.cpuOvercommitRatio = Math.max(cpuOvercommitRatio, 0);
+    }
+
+    /**
+     * Getter for the field <code>memoryOvercommitRatio</code>.
+     * @return fraction of host memory that may be allocated to VMs, 1.0 by default.
+     */
+    public double getMemoryOvercommitRatio() {
+        return memoryOvercommitRatio > 0 ? memoryOvercommitRatio : 1.0;
+    }
+
+    @DataBoundSetter
+    public void setMemoryOvercommitRatio(double memoryOvercommitRatio) {
+        this.memoryOvercommitRatio = Math.max(memoryOvercommitRatio, 0);
+    }
+
+    /**
+     * Getter for the field <code>diskOvercommitRatio</code>.
+     * @return fraction of host disk that may be allocated to VMs, 1.0 by default.
+     */
+    public double getDiskOvercommitRatio() {
+        return diskOvercommitRatio > 0 ? diskOvercommitRatio : 1.0;
+    }
+
+    @DataBoundSetter
+    public void setDiskOvercommitRatio(double diskOvercommitRatio) {
+        this.diskOvercommitRatio = Math.max(diskOvercommitRatio, 0);
+    }
+
+    /**
+     * Getter for the field <code>maxConcurrentLaunches</code>.
+     * @return the maximum number of agents launched in parallel, defaulting to the number of host cores.
+     */
+    public int getMaxConcurrentLaunches() {
+        return maxConcurrentLaunches > 0
+                ? maxConcurrentLaunches
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Setter for the field <code>maxConcurrentLaunches</code>.
+     * @param maxConcurrentLaunches the maximum number of agents launched in parallel, 0 for the host's core count.
+     */
+    @DataBoundSetter
+    public void setMaxConcurrentLaunches(int maxConcurrentLaunches) {
+        this.maxConcurrentLaunches = Math.max(maxConcurrentLaunches, 0);
     }
 
     /**
      * Create a Multipass VM name with random alphanumeric suffix.
      * @return a {@link String} for a Multipass VM
      */
-    private String createInstanceName() {
-        return String.format("%s-%s", getName(), RandomStringUtils.randomAlphanumeric(4));
+    String createInstanceName() {
+        return String.format("%s-%s", getName(), RandomStringUtils.randomAlphanumeric(INSTANCE_SUFFIX_LENGTH));
+    }
+
+    /**
+     * Check whether given instance name has the shape of the names given by this cloud to its agents.
+     * Golden instances and instances of clouds whose name extends this one's do not match.
+     * @param instanceName the instance name.
+     * @return true if the instance could have been launched as an agent of this cloud.
+     */
+    boolean isAgentInstanceName(String instanceName) {
+        var prefix = getName() + "-";
+        return instanceName.length() == prefix.length() + INSTANCE_SUFFIX_LENGTH
+                && instanceName.startsWith(prefix)
+                && StringUtils.isAlphanumeric(instanceName.substring(prefix.length()));
     }
 
     /**
@@ -224,8 +892,7 @@ public class MultipassCloud extends Cloud {
     public HttpResponse doProvision(@QueryParameter String template) {
         checkPermission(PROVISION);
 
-        var matchingTemplate = this.templates.stream().filter(t -> t.getName().equals(template)).toList().stream()
-                .findFirst();
+        var matchingTemplate = getTemplatesByName(template).stream().findFirst();
         if (matchingTemplate.isEmpty()) {
             throw HttpResponses.error(SC_BAD_REQUEST, "No such template " + template);
         }
@@ -238,11 +905,7 @@ public class MultipassCloud extends Cloud {
         }
 
         try {
-            var nodes = provision(
-                    new CloudState(new LabelAtom(matchingTemplate.get().getLabels()), 1),
-                    (int) (getCurrentlyProvisionedAgentCount() + 1));
-            var manuallyProvisionedAgent = Arrays.stream(nodes.toArray(NodeProvisioner.PlannedNode[]::new))
-                    .findFirst();
+            var manuallyProvisionedAgent = provisionOne(matchingTemplate.get());
             if (manuallyProvisionedAgent.isEmpty()) {
                 throw HttpResponses.error(
                         SC_INTERNAL_SERVER_ERROR,
@@ -256,6 +919,15 @@ public class MultipassCloud extends Cloud {
         }
     }
 
+    /**
+     * Expose launch phase latency histograms of this cloud as JSON.
+     */
+    @SuppressWarnings("unused")
+    public HttpResponse doLaunchStatsJson() {
+        jenkinsController().checkPermission(Jenkins.SYSTEM_READ);
+        return hudson.util.HttpResponses.okJSON(getLaunchMetrics().toJson());
+    }
+
     @Extension
     @SuppressWarnings("unused")
     public static class DescriptorImpl extends Descriptor<Cloud> {
@@ -272,5 +944,13 @@ public class MultipassCloud extends Cloud {
         public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
             return Boolean.TRUE;
         }
+
+        public FormValidation doCheckParkedMemoryBudget(@QueryParameter String value) {
+            return MultipassEndpoint.DescriptorImpl.checkSize(value);
+        }
+
+        public FormValidation doCheckParkedDiskBudget(@QueryParameter String value) {
+            return MultipassEndpoint.DescriptorImpl.checkSize(value);
+        }
     }
 }
@@ -0,0 +1,75 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Edits of the cloud-config user data of templates. Works on the text of the document, so that
+ * everything the template author wrote, comments included, is passed on to cloud-init unchanged.
+ */
+final class MultipassCloudInit {
+    private static final Pattern BLOCK_RUNCMD = Pattern.compile("^runcmd:\\s*(#.*)?$");
+    private static final Pattern FLOW_RUNCMD = Pattern.compile("^runcmd:\\s*\\[(.*)]\\s*$");
+
+    private MultipassCloudInit() {}
+
+    /**
+     * Append a command to the <code>runcmd</code> list of given cloud-config, creating the list if needed.
+     * @param cloudInit the cloud-config, may be blank.
+     * @param command a shell command.
+     * @return the cloud-config running the command after the ones it already runs.
+     */
+    static String withRunCommand(String cloudInit, String command) {
+        var item = quote(command);
+        var config = StringUtils.isBlank(cloudInit) ? "#cloud-config\n" : cloudInit;
+        List<String> lines = new ArrayList<>(Arrays.asList(config.split("\n", -1)));
+
+        for (int i = 0; i < lines.size(); i++) {
+            var flow = FLOW_RUNCMD.matcher(lines.get(i));
+            if (flow.matches()) {
+                var items = flow.group(1).trim();
+                lines.set(i, "runcmd: [" + (items.isEmpty() ? item : items + ", " + item) + "]");
+                return String.join("\n", lines);
+            }
+            if (BLOCK_RUNCMD.matcher(lines.get(i)).matches()) {
+                var indent = itemIndent(lines, i);
+                int last = i;
+                for (int j = i + 1; j < lines.size(); j++) {
+                    var line = lines.get(j);
+                    if (line.isBlank() || line.trim().startsWith("#")) {
+                        continue;
+                    }
+                    boolean nested = line.startsWith(" ") || line.startsWith("\t");
+                    if (!nested && !(indent.isEmpty() && line.startsWith("-"))) {
+                        break;
+                    }
+                    last = j;
+                }
+                lines.add(last + 1, indent + "- " + item);
+                return String.join("\n", lines);
+            }
+        }
+
+        var prefix = config.endsWith("\n") ? config : config + "\n";
+        return prefix + "runcmd:\n  - " + item + "\n";
+    }
+
+    private static String itemIndent(List<String> lines, int keyLine) {
+        for (int j = keyLine + 1; j < lines.size(); j++) {
+            var line = lines.get(j);
+            if (line.isBlank() || line.trim().startsWith("#")) {
+                continue;
+            }
+            var trimmed = line.stripLeading();
+            return trimmed.startsWith("-") ? line.substring(0, line.length() - trimmed.length()) : "  ";
+        }
+        return "  ";
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
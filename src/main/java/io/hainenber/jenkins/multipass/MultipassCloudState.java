@@ -0,0 +1,21 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runtime state of a cloud that outlives its configuration. Saving the cloud configuration builds a new
+ * {@link MultipassCloud} instance, which picks this state up by name rather than starting over with empty
+ * pools, forgotten placements and launch bounds at full capacity.
+ * Fields are guarded by this object.
+ */
+class MultipassCloudState {
+    MultipassWarmPool warmPool;
+    MultipassParkedPool parkedPool;
+    MultipassAgentRegistry agentRegistry;
+    Semaphore launchSemaphore;
+    int launchSemaphorePermits;
+    MultipassRateLimiter rateLimiter;
+    final Map<String, MultipassHost> placements = new ConcurrentHashMap<>();
+}
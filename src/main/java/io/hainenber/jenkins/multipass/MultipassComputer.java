@@ -1,14 +1,13 @@
 package io.hainenber.jenkins.multipass;
 
-import hudson.model.Computer;
 import hudson.model.Executor;
 import hudson.model.Queue;
 import hudson.slaves.AbstractCloudComputer;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import java.util.Objects;
 import java.util.StringJoiner;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jenkins.model.Jenkins;
 import org.apache.commons.lang.time.DurationFormatUtils;
 import org.jenkinsci.plugins.cloudstats.ProvisioningActivity;
 import org.jenkinsci.plugins.cloudstats.TrackedItem;
@@ -17,31 +16,67 @@ import org.slf4j.LoggerFactory;
 
 public class MultipassComputer extends AbstractCloudComputer<MultipassAgent> implements TrackedItem {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipassComputer.class);
+    static final int SSH_PORT = 22;
 
     @Nonnull
-    private MultipassCloud cloud;
+    private final String cloudName;
 
     @Nonnull
     private final MultipassAgentTemplate template;
 
+    private volatile boolean retiredAfterProblems;
+
+    private final AtomicBoolean terminating = new AtomicBoolean();
+
     /**
      * Constructor for MultipassComputer
      * @param multipassAgent a {@link MultipassAgent} object.
      */
     public MultipassComputer(MultipassAgent multipassAgent) {
         super(multipassAgent);
-        this.cloud = multipassAgent.getCloud();
+        this.cloudName = multipassAgent.getCloudName();
         this.template = multipassAgent.getTemplate();
     }
 
-    public void setCloud(@Nonnull MultipassCloud cloud) {
-        this.cloud = cloud;
+    /**
+     * Get the cloud this computer's agent was provisioned by.
+     * @return a {@link MultipassCloud} object, or null if the cloud was removed.
+     */
+    @Nullable
+    public MultipassCloud getCloud() {
+        var jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null && jenkins.getCloud(cloudName) instanceof MultipassCloud cloud ? cloud : null;
     }
 
     public MultipassAgentTemplate getOriginTemplate() {
         return template;
     }
 
+    /**
+     * Record that the agent was retired because a build completed with problems on it.
+     */
+    public void markRetiredAfterProblems() {
+        this.retiredAfterProblems = true;
+    }
+
+    /**
+     * Check whether the agent was retired because a build completed with problems on it,
+     * in which case its VM must not be reused.
+     * @return true if a build completed with problems.
+     */
+    public boolean isRetiredAfterProblems() {
+        return retiredAfterProblems;
+    }
+
+    /**
+     * Claim the termination of the agent, so that it is terminated once however many
+     * executors, checks or launch failures retire it at the same time.
+     * @return true for the first caller only.
+     */
+    public boolean markTerminating() {
+        return terminating.compareAndSet(false, true);
+    }
+
     @Override
     public void taskAccepted(Executor executor, Queue.Task task) {
         super.taskAccepted(executor, task);
@@ -66,40 +101,27 @@ public class MultipassComputer extends AbstractCloudComputer<MultipassAgent> imp
                 this,
                 task.getFullDisplayName(),
                 DurationFormatUtils.formatDurationWords(durationMS, true, true));
-        gracefulShutdown();
+    }
+
+    @Override
+    protected void onRemoved() {
+        super.onRemoved();
+        var cloud = getCloud();
+        if (cloud != null) {
+            cloud.getAgentRegistry().remove(getName());
+        }
     }
 
     @Override
     public String toString() {
         return new StringJoiner(", ", MultipassComputer.class.getSimpleName() + "[", "]")
-                .add("cloud=" + cloud)
+                .add("cloud=" + cloudName)
                 .toString();
     }
 
     public Integer getSshPort() {
         // TODO: refactor away this hardcoded value.
-        return 22;
-    }
-
-    private void gracefulShutdown() {
-        // Mark the computer to no longer accept new tasks;
-        setAcceptingTasks(false);
-
-        Future<Object> next = Computer.threadPoolForRemoting.submit(() -> {
-            LOGGER.info("[multipass-cloud] [{}]: Terminating agent after task.", this);
-            try {
-                Thread.sleep(500);
-                MultipassCloud.jenkinsController().removeNode(Objects.requireNonNull(getNode()));
-            } catch (Exception e) {
-                LOGGER.info(
-                        "[multipass-cloud] [{}]: Error encounter when trying to terminate agent: {}",
-                        this,
-                        e.getClass());
-            }
-            return null;
-        });
-
-        next.notify();
+        return SSH_PORT;
     }
 
     @Nullable
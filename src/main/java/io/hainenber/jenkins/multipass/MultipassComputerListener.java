@@ -0,0 +1,24 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+
+/**
+ * Marks Multipass agents online in their cloud's registry once their channel is up,
+ * whichever side initiated the connection.
+ */
+@Extension
+@SuppressWarnings("unused")
+public class MultipassComputerListener extends ComputerListener {
+    @Override
+    public void onOnline(Computer c, TaskListener listener) {
+        if (c instanceof MultipassComputer computer) {
+            var cloud = computer.getCloud();
+            if (cloud != null) {
+                cloud.getAgentRegistry().transition(computer.getName(), MultipassAgentRegistry.State.ONLINE);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import io.hainenber.jenkins.multipass.sdk.MultipassGrpcTransport;
+import io.hainenber.jenkins.multipass.sdk.MultipassSize;
+import jakarta.annotation.Nonnull;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * A Multipass daemon a cloud may place its VMs on, either the local one or a remote one
+ * reached through <code>MULTIPASS_SERVER_ADDRESS</code>.
+ */
+public class MultipassEndpoint extends AbstractDescribableImpl<MultipassEndpoint> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 6024787313912409417L;
+
+    private final String address;
+    private int cpus;
+    private String memory;
+    private String disk;
+    private String clientCertificate;
+    private String clientKey;
+    private String daemonCertificate;
+
+    /**
+     * Constructor for MultipassEndpoint.
+     * @param address address of the daemon, e.g. <code>host:50051</code>, blank for the local daemon.
+     */
+    @DataBoundConstructor
+    public MultipassEndpoint(String address) {
+        this.address = StringUtils.trimToEmpty(address);
+    }
+
+    /**
+     * The endpoint of the local daemon, used by clouds without configured endpoints.
+     * @return a {@link MultipassEndpoint} object.
+     */
+    public static MultipassEndpoint local() {
+        return new MultipassEndpoint("");
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public boolean isLocal() {
+        return address.isEmpty();
+    }
+
+    public int getCpus() {
+        return cpus;
+    }
+
+    @DataBoundSetter
+    public void setCpus(int cpus) {
+        this.cpus = Math.max(cpus, 0);
+    }
+
+    public String getMemory() {
+        return memory;
+    }
+
+    @DataBoundSetter
+    public void setMemory(String memory) {
+        this.memory = StringUtils.trimToNull(memory);
+    }
+
+    public String getDisk() {
+        return disk;
+    }
+
+    @DataBoundSetter
+    public void setDisk(String disk) {
+        this.disk = StringUtils.trimToNull(disk);
+    }
+
+    public String getClientCertificate() {
+        return clientCertificate;
+    }
+
+    @DataBoundSetter
+    public void setClientCertificate(String clientCertificate) {
+        this.clientCertificate = StringUtils.trimToNull(clientCertificate);
+    }
+
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    @DataBoundSetter
+    public void setClientKey(String clientKey) {
+        this.clientKey = StringUtils.trimToNull(clientKey);
+    }
+
+    public String getDaemonCertificate() {
+        return daemonCertificate;
+    }
+
+    @DataBoundSetter
+    public void setDaemonCertificate(String daemonCertificate) {
+        this.daemonCertificate = StringUtils.trimToNull(daemonCertificate);
+    }
+
+    /**
+     * Certificates with which the gRPC transport reaches the daemon behind this endpoint. Blank client
+     * paths use the certificate of the local Multipass installation, the one <code>multipass authenticate</code>
+     * registers with remote daemons. A blank daemon certificate is only known for the local daemon.
+     * @return the certificates, or empty for a remote daemon without a configured daemon certificate.
+     */
+    public Optional<MultipassGrpcTransport.Certificates> getGrpcCertificates() {
+        if (daemonCertificate == null && !isLocal()) {
+            return Optional.empty();
+        }
+        var defaults = MultipassGrpcTransport.Certificates.defaults();
+        return Optional.of(new MultipassGrpcTransport.Certificates(
+                clientCertificate != null ? Path.of(clientCertificate) : defaults.clientCertificate(),
+                clientKey != null ? Path.of(clientKey) : defaults.clientKey(),
+                daemonCertificate != null ? Path.of(daemonCertificate) : defaults.daemonCertificate()));
+    }
+
+    /**
+     * Resources of the host behind this endpoint. Blank values are left unlimited for remote daemons.
+     * For the local daemon they are detected as what is still available, plus the memory and disk
+     * held by the instances that already run there, since those count against the host's reservations.
+     * @param inUse resources reserved by instances that already exist on the host.
+     * @return a {@link MultipassHostCapacity.Resources} object.
+     */
+    public MultipassHostCapacity.Resources getHostResources(MultipassHostCapacity.Resources inUse) {
+        var detected = new MultipassHostCapacity.Resources(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        if (isLocal()) {
+            var available = MultipassHostCapacity.detectHostResources();
+            detected = new MultipassHostCapacity.Resources(
+                    available.cpus(),
+                    saturatedAdd(available.memoryBytes(), inUse.memoryBytes()),
+                    saturatedAdd(available.diskBytes(), inUse.diskBytes()));
+        }
+        return new MultipassHostCapacity.Resources(
+                cpus > 0 ? cpus : detected.cpus(),
+                memory != null ? MultipassSize.parseBytes(memory) : detected.memoryBytes(),
+                disk != null ? MultipassSize.parseBytes(disk) : detected.diskBytes());
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+    }
+
+    @Override
+    public String toString() {
+        return isLocal() ? "local" : address;
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends Descriptor<MultipassEndpoint> {
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Multipass endpoint";
+        }
+
+        public FormValidation doCheckMemory(@QueryParameter String value) {
+            return checkSize(value);
+        }
+
+        public FormValidation doCheckDisk(@QueryParameter String value) {
+            return checkSize(value);
+        }
+
+        static FormValidation checkSize(String value) {
+            if (StringUtils.isBlank(value)) {
+                return FormValidation.ok();
+            }
+            try {
+                MultipassSize.parseBytes(value.trim());
+                return FormValidation.ok();
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error("Not a valid size, e.g. 16G");
+            }
+        }
+    }
+}
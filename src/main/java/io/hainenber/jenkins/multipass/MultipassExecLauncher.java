@@ -0,0 +1,104 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.util.StreamCopyThread;
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.exec.ExecuteException;
+
+/**
+ * Launcher running the remoting channel over the standard streams of <code>multipass exec</code>,
+ * with <code>remoting.jar</code> copied by <code>multipass transfer</code>. It needs neither SSH
+ * credentials nor network access to the VM, and connects as soon as the VM is running.
+ */
+public class MultipassExecLauncher extends MultipassLauncher {
+    private static final String JAR = MultipassRemotingJar.FILE_NAME;
+
+    /**
+     * Constructor for MultipassExecLauncher.
+     *
+     * @param cloud a {@link MultipassCloud} object.
+     */
+    public MultipassExecLauncher(MultipassCloud cloud) {
+        super(cloud);
+    }
+
+    @Override
+    protected void connectAgent(
+            MultipassComputer computer,
+            TaskListener listener,
+            MultipassClient client,
+            MultipassAgentTemplate template,
+            MultipassReadinessProbe readinessProbe)
+            throws Exception {
+        var instanceName = computer.getName();
+        long bootStart = System.nanoTime();
+        readinessProbe.awaitRunning(client, instanceName);
+        recordPhase(computer, template, MultipassLaunchPhase.BOOT, bootStart);
+        awaitCloudInit(computer, listener, client, template, readinessProbe);
+
+        var remoteFs = Objects.requireNonNull(computer.getNode()).getRemoteFS();
+        // Same layout as over SSH, so that jars left by either launcher are reused.
+        var jarPath = remoteFs + "/" + JAR + "/" + JAR;
+        long jarCopyStart = System.nanoTime();
+        copyRemotingJar(client, instanceName, jarPath, listener);
+        recordPhase(computer, template, MultipassLaunchPhase.REMOTING_JAR_COPY, jarCopyStart);
+
+        long channelStart = System.nanoTime();
+        var process = client.spawn(instanceName, List.of("sh", "-c", createRunScript(remoteFs, jarPath)));
+        new StreamCopyThread("stderr of Multipass agent " + instanceName, process.getErrorStream(), listener.getLogger())
+                .start();
+        try {
+            computer.setChannel(
+                    process.getInputStream(), process.getOutputStream(), listener.getLogger(), new Channel.Listener() {
+                        @Override
+                        public void onClosed(Channel channel, IOException cause) {
+                            process.destroy();
+                        }
+                    });
+        } catch (IOException | InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        recordPhase(computer, template, MultipassLaunchPhase.CHANNEL_SETUP, channelStart);
+    }
+
+    private static void copyRemotingJar(MultipassClient client, String instanceName, String jarPath, TaskListener listener)
+            throws IOException {
+        var remotingJar = MultipassRemotingJar.get();
+        try {
+            // Exits with an error unless the VM already has this exact jar, e.g. on reused or cloned VMs.
+            client.exec(instanceName, List.of("sh", "-c", String.format(
+                    "[ \"$(sha256sum %s 2>/dev/null | cut -d' ' -f1)\" = %s ]", jarPath, remotingJar.getSha256())));
+            listener.getLogger().println("[multipass-cloud] Agent already has an up-to-date " + JAR);
+            return;
+        } catch (ExecuteException e) {
+            listener.getLogger().println("[multipass-cloud] Transferring " + JAR + " to " + instanceName);
+        }
+
+        // Transfers land as the default user, so stage the jar where that user can write.
+        var stagingPath = "/tmp/" + instanceName + "-" + JAR;
+        client.transfer(instanceName, remotingJar.getContent(), stagingPath);
+        client.exec(instanceName, List.of("sh", "-c", String.format(
+                "sudo -n install -D -m 0644 %1$s %2$s && rm -f %1$s", stagingPath, jarPath)));
+    }
+
+    /**
+     * Script starting the agent as the <code>jenkins</code> user if the VM has one, as the default user otherwise.
+     * Nothing but remoting may write to standard output, which carries the channel.
+     */
+    static String createRunScript(String remoteFs, String jarPath) {
+        return String.join(
+                "\n",
+                "sudo -n mkdir -p " + remoteFs,
+                "if id jenkins >/dev/null 2>&1; then",
+                "  sudo -n chown jenkins " + remoteFs,
+                "  cd " + remoteFs + " && exec sudo -n -u jenkins java -jar " + jarPath,
+                "fi",
+                "sudo -n chown \"$(id -u)\" " + remoteFs,
+                "cd " + remoteFs + " && exec java -jar " + jarPath);
+    }
+}
@@ -0,0 +1,143 @@
+package io.hainenber.jenkins.multipass;
+
+import io.hainenber.jenkins.multipass.sdk.InstanceState;
+import io.hainenber.jenkins.multipass.sdk.MultipassInstance;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps one stopped "golden" instance per template and host, built from the template's cloud-init once,
+ * so that agents can be created with <code>multipass clone</code> instead of a full launch.
+ */
+public class MultipassGoldenInstances {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassGoldenInstances.class);
+    private static final String GOLDEN_INFIX = "golden";
+    private static final int SPEC_HASH_LENGTH = 12;
+
+    private final Map<String, Object> locksByTemplate = new ConcurrentHashMap<>();
+
+    /**
+     * Name prefix shared by every golden instance of a cloud.
+     * @param cloud a {@link MultipassCloud} object.
+     * @return a {@link String} object.
+     */
+    public static String getGoldenInstancePrefix(MultipassCloud cloud) {
+        return String.format("%s-%s-", cloud.getName(), GOLDEN_INFIX);
+    }
+
+    /**
+     * Name of the golden instance for the current revision of given template.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return a {@link String} object.
+     */
+    public static String getGoldenInstanceName(MultipassCloud cloud, MultipassAgentTemplate template) {
+        return getTemplatePrefix(cloud, template) + template.getSpecHash().substring(0, SPEC_HASH_LENGTH);
+    }
+
+    private static String getTemplatePrefix(MultipassCloud cloud, MultipassAgentTemplate template) {
+        return getGoldenInstancePrefix(cloud) + template.getName().replaceAll("[^A-Za-z0-9-]", "-") + "-";
+    }
+
+    /**
+     * Create a new instance by cloning the golden instance of given template,
+     * (re)building the golden instance first if needed.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param host the {@link MultipassHost} the new instance is placed on.
+     * @param instanceName name of the new instance.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @throws IOException if Multipass fails to build or clone the golden instance.
+     */
+    public void cloneInstance(
+            MultipassCloud cloud, MultipassHost host, String instanceName, MultipassAgentTemplate template)
+            throws IOException {
+        var client = host.getMultipassClient();
+        var goldenInstanceName = ensureGoldenInstance(cloud, host, template);
+
+        LOGGER.info("[multipass-cloud] Cloning instance '{}' from '{}'", instanceName, goldenInstanceName);
+        client.cloneInstance(goldenInstanceName, instanceName);
+        client.startInstance(instanceName);
+    }
+
+    private String ensureGoldenInstance(MultipassCloud cloud, MultipassHost host, MultipassAgentTemplate template)
+            throws IOException {
+        var client = host.getMultipassClient();
+        var goldenInstanceName = getGoldenInstanceName(cloud, template);
+
+        // Only one golden instance build per template and host at a time, other launches wait for it.
+        var lockKey = host.getAddress() + "/" + template.getName();
+        synchronized (locksByTemplate.computeIfAbsent(lockKey, k -> new Object())) {
+            var goldenInstance = client.getInstanceInfo(goldenInstanceName);
+            if (goldenInstance.map(MultipassInstance::getState).orElse(null) == InstanceState.STOPPED) {
+                return goldenInstanceName;
+            }
+
+            if (goldenInstance.isEmpty()) {
+                LOGGER.info(
+                        "[multipass-cloud] Building golden instance '{}' for template '{}'",
+                        goldenInstanceName,
+                        template.getName());
+                client.createInstance(
+                        goldenInstanceName,
+                        template.getCloudInitConfig(),
+                        template.getCpu(),
+                        template.getMemory(),
+                        template.getDisk(),
+                        template.getDistroAlias());
+            }
+            try {
+                // Also covers a golden instance left running by an interrupted build.
+                client.waitForCloudInit(goldenInstanceName);
+                client.stopInstance(goldenInstanceName);
+            } catch (IOException | RuntimeException e) {
+                // A half-built golden instance would fail every later launch, delete it so the next one rebuilds it.
+                LOGGER.warn(
+                        "[multipass-cloud] Failed to build golden instance '{}', deleting it", goldenInstanceName, e);
+                try {
+                    client.terminateInstance(goldenInstanceName);
+                } catch (IOException e1) {
+                    e.addSuppressed(e1);
+                }
+                throw e;
+            }
+            LOGGER.info("[multipass-cloud] Golden instance '{}' is ready", goldenInstanceName);
+
+            deleteOutdatedGoldenInstances(host, getTemplatePrefix(cloud, template), goldenInstanceName);
+            return goldenInstanceName;
+        }
+    }
+
+    private void deleteOutdatedGoldenInstances(MultipassHost host, String templatePrefix, String currentName) {
+        var outdated = new ArrayList<String>();
+        try {
+            for (MultipassInstance instance :
+                    host.getMultipassClient().getInventory().getInstances()) {
+                var name = instance.getName();
+                // Match the exact length so that templates sharing a name prefix are left alone.
+                if (name.startsWith(templatePrefix)
+                        && name.length() == templatePrefix.length() + SPEC_HASH_LENGTH
+                        && !name.equals(currentName)) {
+                    outdated.add(name);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("[multipass-cloud] Failed to delete outdated golden instances", e);
+            return;
+        }
+        if (outdated.isEmpty()) {
+            return;
+        }
+
+        // Deleted on this host directly, as golden instances of every host share the same names.
+        LOGGER.info("[multipass-cloud] Deleting outdated golden instance(s) {} on {}", outdated, host);
+        host.getMultipassClient().deleteInstancesAsync(outdated).whenComplete((ignored, e) -> {
+            if (e != null) {
+                LOGGER.warn("[multipass-cloud] Failed to delete outdated golden instance(s) {}", outdated, e);
+            }
+        });
+    }
+}
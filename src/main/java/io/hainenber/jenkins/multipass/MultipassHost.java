@@ -0,0 +1,64 @@
+package io.hainenber.jenkins.multipass;
+
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+
+/**
+ * Runtime state of one {@link MultipassEndpoint} of a cloud: the client talking to its daemon,
+ * with its own inventory cache, and the capacity model of its host.
+ */
+public class MultipassHost {
+    private final MultipassEndpoint endpoint;
+    private final MultipassClient multipassClient;
+    private final MultipassHostCapacity hostCapacity;
+
+    public MultipassHost(
+            MultipassEndpoint endpoint, MultipassClient multipassClient, MultipassHostCapacity hostCapacity) {
+        this.endpoint = endpoint;
+        this.multipassClient = multipassClient;
+        this.hostCapacity = hostCapacity;
+    }
+
+    public MultipassEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public String getAddress() {
+        return endpoint.getAddress();
+    }
+
+    public MultipassClient getMultipassClient() {
+        return multipassClient;
+    }
+
+    public MultipassHostCapacity getHostCapacity() {
+        return hostCapacity;
+    }
+
+    /**
+     * Share of the host's allocatable resources already reserved, taking the most used of
+     * CPU, memory and disk.
+     * @param cloud a {@link MultipassCloud} object.
+     * @return a number between 0 (idle host) and 1 (full host).
+     */
+    public double getLoad(MultipassCloud cloud) {
+        var allocatable = hostCapacity.getAllocatable(cloud);
+        var reserved = hostCapacity.getReserved();
+        return Math.max(
+                share(reserved.cpus(), allocatable.cpus()),
+                Math.max(
+                        share(reserved.memoryBytes(), allocatable.memoryBytes()),
+                        share(reserved.diskBytes(), allocatable.diskBytes())));
+    }
+
+    private static double share(long reserved, long allocatable) {
+        if (allocatable <= 0) {
+            return 1;
+        }
+        return allocatable == Long.MAX_VALUE ? 0 : Math.min((double) reserved / allocatable, 1);
+    }
+
+    @Override
+    public String toString() {
+        return endpoint.toString();
+    }
+}
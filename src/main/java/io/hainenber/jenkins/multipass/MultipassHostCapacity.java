@@ -0,0 +1,233 @@
+package io.hainenber.jenkins.multipass;
+
+import io.hainenber.jenkins.multipass.sdk.MultipassSize;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jenkins.util.SystemProperties;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Capacity model of the host running Multipass. Tracks the CPU, memory and disk reserved by
+ * launching and running instances, and tells how many more instances of a template fit.
+ */
+public class MultipassHostCapacity {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassHostCapacity.class);
+
+    // Multipass defaults when a template leaves a resource blank.
+    private static final int DEFAULT_CPUS = 1;
+    private static final String DEFAULT_MEMORY = "1G";
+    private static final String DEFAULT_DISK = "5G";
+
+    static final String STORAGE_PATH =
+            SystemProperties.getString(MultipassHostCapacity.class.getName() + ".storagePath");
+
+    // Where multipassd keeps instance images with the snap on Linux, on macOS and on Windows.
+    private static final List<String> DEFAULT_STORAGE_PATHS = List.of(
+            "/var/snap/multipass/common/data/multipassd",
+            "/var/root/Library/Application Support/multipassd",
+            "C:\\ProgramData\\Multipass");
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+
+    /**
+     * Amount of CPU, memory and disk.
+     * @param cpus number of virtual CPUs.
+     * @param memoryBytes memory in bytes.
+     * @param diskBytes disk in bytes.
+     */
+    public record Resources(long cpus, long memoryBytes, long diskBytes) {
+        public static final Resources NONE = new Resources(0, 0, 0);
+
+        public Resources plus(Resources other) {
+            return new Resources(cpus + other.cpus, memoryBytes + other.memoryBytes, diskBytes + other.diskBytes);
+        }
+
+        public Resources minus(Resources other) {
+            return new Resources(cpus - other.cpus, memoryBytes - other.memoryBytes, diskBytes - other.diskBytes);
+        }
+
+        /**
+         * Number of times given demand fits in these resources.
+         * @param demand a {@link Resources} object.
+         * @return a non-negative number.
+         */
+        public long fit(Resources demand) {
+            long fit = Long.MAX_VALUE;
+            if (demand.cpus > 0) fit = Math.min(fit, cpus / demand.cpus);
+            if (demand.memoryBytes > 0) fit = Math.min(fit, memoryBytes / demand.memoryBytes);
+            if (demand.diskBytes > 0) fit = Math.min(fit, diskBytes / demand.diskBytes);
+            return Math.max(fit, 0);
+        }
+    }
+
+    private volatile Resources hostResources;
+    private final Map<String, Resources> reservations = new ConcurrentHashMap<>();
+
+    public MultipassHostCapacity(Resources hostResources) {
+        this.hostResources = hostResources;
+    }
+
+    /**
+     * Replace the resources of the host, keeping the current reservations.
+     * @param hostResources a {@link Resources} object.
+     */
+    public void setHostResources(Resources hostResources) {
+        this.hostResources = hostResources;
+    }
+
+    /**
+     * Read the resources of the local host that are still available: its cores, the memory the
+     * kernel can hand out without swapping and the usable space of the Multipass storage pool.
+     * @return a {@link Resources} object.
+     */
+    public static Resources detectHostResources() {
+        long cpus = Runtime.getRuntime().availableProcessors();
+        long diskBytes = Long.MAX_VALUE;
+        var storagePath = getStoragePath();
+        try {
+            diskBytes = Files.getFileStore(storagePath).getUsableSpace();
+        } catch (IOException e) {
+            LOGGER.warn("[multipass-cloud] Cannot read disk capacity of {}, not limiting disk usage", storagePath, e);
+        }
+        return new Resources(cpus, detectAvailableMemory(), diskBytes);
+    }
+
+    private static Path getStoragePath() {
+        if (StringUtils.isNotBlank(STORAGE_PATH)) {
+            return Paths.get(STORAGE_PATH);
+        }
+        return DEFAULT_STORAGE_PATHS.stream()
+                .map(Paths::get)
+                .filter(Files::isDirectory)
+                .findFirst()
+                .orElseGet(() -> Paths.get("/"));
+    }
+
+    private static long detectAvailableMemory() {
+        // Free memory alone leaves out the page cache, which the kernel reclaims for new VMs.
+        if (Files.isReadable(MEMINFO)) {
+            try (var lines = Files.lines(MEMINFO)) {
+                var available = lines.filter(l -> l.startsWith("MemAvailable:")).findFirst();
+                if (available.isPresent()) {
+                    return Long.parseLong(available.get().replaceAll("\\D", "")) * 1024;
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.warn("[multipass-cloud] Cannot read available memory from {}", MEMINFO, e);
+            }
+        }
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getFreeMemorySize();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Resources requested by one instance of given template.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return a {@link Resources} object.
+     */
+    public static Resources of(MultipassAgentTemplate template) {
+        int cpus = template.getCpu() == null ? DEFAULT_CPUS : template.getCpu();
+        return new Resources(
+                cpus,
+                parseOrDefault(template.getMemory(), DEFAULT_MEMORY),
+                parseOrDefault(template.getDisk(), DEFAULT_DISK));
+    }
+
+    private static long parseOrDefault(String size, String defaultSize) {
+        try {
+            return MultipassSize.parseBytes(StringUtils.defaultIfBlank(size, defaultSize));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("[multipass-cloud] Cannot parse size '{}', assuming Multipass default {}", size, defaultSize);
+            return MultipassSize.parseBytes(defaultSize);
+        }
+    }
+
+    /**
+     * Host resources scaled by the cloud's overcommit ratios.
+     * @param cloud a {@link MultipassCloud} object.
+     * @return a {@link Resources} object.
+     */
+    public Resources getAllocatable(MultipassCloud cloud) {
+        return new Resources(
+                scale(hostResources.cpus(), cloud.getCpuOvercommitRatio()),
+                scale(hostResources.memoryBytes(), cloud.getMemoryOvercommitRatio()),
+                scale(hostResources.diskBytes(), cloud.getDiskOvercommitRatio()));
+    }
+
+    private static long scale(long value, double ratio) {
+        return value == Long.MAX_VALUE ? value : (long) (value * ratio);
+    }
+
+    /**
+     * Check whether CPU, memory and disk of the host are all known. Remote daemons are
+     * unbounded in the resources their endpoint does not configure.
+     * @return true if no resource is unlimited.
+     */
+    public boolean isBounded() {
+        var resources = hostResources;
+        return resources.cpus() != Long.MAX_VALUE
+                && resources.memoryBytes() != Long.MAX_VALUE
+                && resources.diskBytes() != Long.MAX_VALUE;
+    }
+
+    /**
+     * Number of instances holding resources on the host.
+     * @return a non-negative number.
+     */
+    public int getReservationCount() {
+        return reservations.size();
+    }
+
+    public Resources getReserved() {
+        return reservations.values().stream().reduce(Resources.NONE, Resources::plus);
+    }
+
+    /**
+     * Number of additional instances of given template that fit on the host.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return a non-negative number.
+     */
+    public long fit(MultipassCloud cloud, MultipassAgentTemplate template) {
+        return getAllocatable(cloud).minus(getReserved()).fit(of(template));
+    }
+
+    /**
+     * Atomically reserve resources for a new instance, if they fit.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param instanceName the instance name.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return true if the resources were reserved.
+     */
+    public synchronized boolean tryReserve(MultipassCloud cloud, String instanceName, MultipassAgentTemplate template) {
+        if (reservations.containsKey(instanceName)) {
+            return true;
+        }
+        if (fit(cloud, template) < 1) {
+            return false;
+        }
+        reservations.put(instanceName, of(template));
+        return true;
+    }
+
+    /**
+     * Record resources held by an instance that already exists, regardless of capacity.
+     * @param instanceName the instance name.
+     * @param template a {@link MultipassAgentTemplate} object.
+     */
+    public void reserve(String instanceName, MultipassAgentTemplate template) {
+        reservations.putIfAbsent(instanceName, of(template));
+    }
+
+    public void release(String instanceName) {
+        reservations.remove(instanceName);
+    }
+}
@@ -0,0 +1,210 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.AbortException;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.slaves.JNLPLauncher;
+import hudson.slaves.SlaveComputer;
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import jenkins.slaves.JnlpAgentReceiver;
+import jenkins.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Launcher for agents that connect back to the controller over WebSocket. The VM is created
+ * asynchronously with a cloud-init starting the agent on every boot, so no controller thread
+ * waits for the VM to come up and no SSH connection is needed.
+ */
+public class MultipassInboundLauncher extends JNLPLauncher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassInboundLauncher.class);
+
+    static final String AGENT_DIRECTORY = "/home/jenkins";
+    private static final String BOOT_SCRIPT = "/var/lib/cloud/scripts/per-boot/jenkins-agent.sh";
+    // Readable by root and the jenkins user only, so that the secret never shows up on a command line.
+    private static final String SECRET_FILE = "/etc/jenkins-agent.secret";
+
+    private final String cloudName;
+
+    /**
+     * Constructor for MultipassInboundLauncher.
+     *
+     * @param cloud a {@link MultipassCloud} object.
+     */
+    public MultipassInboundLauncher(MultipassCloud cloud) {
+        super();
+        setWebSocket(true);
+        this.cloudName = cloud.getName();
+    }
+
+    public String getCloudName() {
+        return cloudName;
+    }
+
+    /**
+     * Launching creates the VM, the connection itself is initiated by the agent.
+     */
+    @Override
+    public boolean isLaunchSupported() {
+        return true;
+    }
+
+    @Override
+    public void launch(@Nonnull SlaveComputer slaveComputer, @Nonnull TaskListener listener) {
+        var computer = (MultipassComputer) slaveComputer;
+        var cloud = computer.getCloud();
+        if (cloud == null || computer.getNode() == null) {
+            LOGGER.info("[multipass-cloud] Not launching {} since its cloud or node is missing", computer);
+            return;
+        }
+        var instanceName = computer.getName();
+        var template = computer.getOriginTemplate();
+        var registry = cloud.getAgentRegistry();
+        registry.transition(instanceName, MultipassAgentRegistry.State.LAUNCHING);
+
+        var client = cloud.getHost(instanceName).getMultipassClient();
+        boolean restored = computer.getNode() instanceof MultipassAgent agent && agent.isRestored();
+        client.getInstanceInfoAsync(instanceName)
+                .thenCompose(instance -> {
+                    // Pooled and restored VMs already run the agent from their own cloud-init.
+                    if (instance.isPresent()) {
+                        registry.markLaunchStarted(instanceName, System.nanoTime());
+                        return client.startInstanceAsync(instanceName);
+                    }
+                    if (restored) {
+                        throw new CompletionException(
+                                new AbortException("The Multipass VM of restored agent " + instanceName + " is gone"));
+                    }
+                    listener.getLogger().println("[multipass-cloud] Creating Multipass VM " + instanceName);
+                    return createInstance(cloud, client, instanceName, template);
+                })
+                .whenComplete((ignored, e) -> {
+                    if (e == null) {
+                        listener.getLogger().println("[multipass-cloud] Waiting for agent " + instanceName);
+                        return;
+                    }
+                    var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    LOGGER.error("[multipass-cloud] Exception when launching Multipass VM '{}'", instanceName, cause);
+                    listener.fatalError("[multipass-cloud] Exception when launching Multipass VM: %s", cause);
+                    terminate(computer);
+                });
+
+        // The agent has as long as an SSH launch would to connect back.
+        Timer.get()
+                .schedule(
+                        () -> {
+                            if (computer.getNode() != null && computer.isOffline()) {
+                                LOGGER.warn(
+                                        "[multipass-cloud] Agent '{}' did not connect within {} seconds",
+                                        instanceName,
+                                        cloud.getLaunchTimeoutSeconds());
+                                terminate(computer);
+                            }
+                        },
+                        cloud.getLaunchTimeoutSeconds(),
+                        TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create the VM of an agent once one of the cloud's launch slots is free, holding the slot
+     * until the VM is up. Waiting for the slot happens off the launching thread, like the creation.
+     */
+    private static CompletableFuture<Void> createInstance(
+            MultipassCloud cloud, MultipassClient client, String instanceName, MultipassAgentTemplate template) {
+        var launchSlots = cloud.getLaunchSemaphore();
+        return CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                launchSlots.acquire();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new CompletionException(e);
+                            }
+                            cloud.getAgentRegistry().markLaunchStarted(instanceName, System.nanoTime());
+                        },
+                        Computer.threadPoolForRemoting)
+                .thenCompose(ignored -> {
+                    CompletableFuture<Void> creation;
+                    try {
+                        creation = client.createInstanceAsync(
+                                instanceName,
+                                createCloudInit(cloud, instanceName, template),
+                                template.getCpu(),
+                                template.getMemory(),
+                                template.getDisk(),
+                                template.getDistroAlias());
+                    } catch (AbortException e) {
+                        creation = CompletableFuture.failedFuture(e);
+                    }
+                    return creation.whenComplete((result, e) -> launchSlots.release());
+                });
+    }
+
+    private static void terminate(MultipassComputer computer) {
+        var node = computer.getNode();
+        if (node == null || !computer.markTerminating()) {
+            return;
+        }
+        try {
+            node.terminate();
+        } catch (InterruptedException | IOException e) {
+            LOGGER.warn("[multipass-cloud] Failed to terminate agent '{}'", computer.getName(), e);
+        }
+    }
+
+    /**
+     * Template cloud-init with a command installing and running a boot script that downloads,
+     * or reuses, the agent jar and keeps the agent connected to the controller.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param instanceName name of the agent and of its VM.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return the cloud-init user data.
+     * @throws AbortException if the Jenkins URL is not configured.
+     */
+    static String createCloudInit(MultipassCloud cloud, String instanceName, MultipassAgentTemplate template)
+            throws AbortException {
+        var rootUrl = MultipassCloud.jenkinsController().getRootUrl();
+        if (rootUrl == null || rootUrl.contains("'")) {
+            throw new AbortException("Inbound Multipass agents need a valid Jenkins URL to connect back to");
+        }
+        var secret = JnlpAgentReceiver.SLAVE_SECRET.mac(instanceName);
+        var script = createBootScript(rootUrl, instanceName);
+        var encoded = Base64.getEncoder().encodeToString(script.getBytes(StandardCharsets.UTF_8));
+        // printf and echo are shell builtins, the secret is not passed to any process as an argument.
+        var command = String.format(
+                "(umask 077 && printf '%%s' '%1$s' > %2$s)"
+                        + " && { ! id jenkins >/dev/null 2>&1 || chown jenkins %2$s; }"
+                        + " && mkdir -p %3$s && echo %4$s | base64 -d > %5$s && chmod 700 %5$s && %5$s",
+                secret,
+                SECRET_FILE,
+                BOOT_SCRIPT.substring(0, BOOT_SCRIPT.lastIndexOf('/')),
+                encoded,
+                BOOT_SCRIPT);
+        return MultipassCloudInit.withRunCommand(template.getCloudInitConfig(), command);
+    }
+
+    static String createBootScript(String rootUrl, String agentName) {
+        return String.join(
+                "\n",
+                "#!/bin/sh",
+                "# Keeps this VM connected to Jenkins as the inbound agent '" + agentName + "'.",
+                "mkdir -p " + AGENT_DIRECTORY,
+                "cd " + AGENT_DIRECTORY + " || exit 1",
+                "RUN_AS=",
+                "if id jenkins >/dev/null 2>&1; then chown jenkins .; RUN_AS='runuser -u jenkins --'; fi",
+                "setsid nohup sh -c \"while true; do",
+                "  [ -s agent.jar ] || $RUN_AS curl -fsSL -o agent.jar '" + rootUrl + "jnlpJars/agent.jar'",
+                "  $RUN_AS java -jar agent.jar -url '" + rootUrl + "' -name '" + agentName + "' -secret @"
+                        + SECRET_FILE + " -webSocket -workDir " + AGENT_DIRECTORY,
+                "  sleep 5",
+                "done\" > /var/log/jenkins-agent.log 2>&1 &",
+                "");
+    }
+}
@@ -0,0 +1,98 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Latency histograms of the launch phases of a cloud's agents, per template.
+ * Each histogram keeps a sliding window of the most recent samples.
+ */
+public class MultipassLaunchMetrics {
+    static final int WINDOW_SIZE = 1024;
+
+    private final Map<String, Map<MultipassLaunchPhase, Window>> windowsByTemplate = new ConcurrentHashMap<>();
+
+    /**
+     * Summary of one phase's latencies, in milliseconds.
+     * @param count number of samples recorded since startup.
+     * @param p50 median latency.
+     * @param p95 95th percentile latency.
+     * @param p99 99th percentile latency.
+     */
+    public record Summary(long count, long p50, long p95, long p99) {}
+
+    private static final class Window {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private long count;
+
+        synchronized void add(long value) {
+            samples[(int) (count % WINDOW_SIZE)] = value;
+            count++;
+        }
+
+        synchronized Summary summarize() {
+            var sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW_SIZE));
+            Arrays.sort(sorted);
+            return new Summary(count, percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99));
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(Math.min(rank, sorted.length - 1), 0)];
+        }
+    }
+
+    /**
+     * Record the duration of one launch phase.
+     * @param templateName name of the template the agent was launched from.
+     * @param phase a {@link MultipassLaunchPhase}.
+     * @param durationMillis the phase duration in milliseconds.
+     */
+    public void record(String templateName, MultipassLaunchPhase phase, long durationMillis) {
+        windowsByTemplate
+                .computeIfAbsent(templateName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(phase, k -> new Window())
+                .add(durationMillis);
+    }
+
+    /**
+     * Summaries of every recorded phase, keyed by template name.
+     * @return a sorted map of template name to phase summaries.
+     */
+    public Map<String, Map<MultipassLaunchPhase, Summary>> getSummaries() {
+        var summaries = new TreeMap<String, Map<MultipassLaunchPhase, Summary>>();
+        windowsByTemplate.forEach((templateName, windows) -> {
+            var phases = new EnumMap<MultipassLaunchPhase, Summary>(MultipassLaunchPhase.class);
+            windows.forEach((phase, window) -> phases.put(phase, window.summarize()));
+            summaries.put(templateName, phases);
+        });
+        return summaries;
+    }
+
+    /**
+     * Summaries of every recorded phase, as exposed by the metrics API.
+     * @return a {@link JSONObject} object.
+     */
+    public JSONObject toJson() {
+        var templates = new JSONArray();
+        getSummaries().forEach((templateName, phases) -> {
+            var phaseArray = new JSONArray();
+            phases.forEach((phase, summary) -> phaseArray.add(new JSONObject()
+                    .element("phase", phase.name())
+                    .element("count", summary.count())
+                    .element("p50", summary.p50())
+                    .element("p95", summary.p95())
+                    .element("p99", summary.p99())));
+            templates.add(new JSONObject().element("template", templateName).element("phases", phaseArray));
+        });
+        return new JSONObject().element("unit", "ms").element("templates", templates);
+    }
+}
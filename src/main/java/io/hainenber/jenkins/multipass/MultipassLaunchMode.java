@@ -0,0 +1,20 @@
+package io.hainenber.jenkins.multipass;
+
+/**
+ * How the Jenkins controller connects to the agents of a template.
+ */
+public enum MultipassLaunchMode {
+    SSH("SSH: the controller connects to the VM and starts the agent"),
+    MULTIPASS_EXEC("Multipass exec: the controller starts the agent through multipass exec, without SSH"),
+    INBOUND_WEBSOCKET("Inbound WebSocket: the VM starts the agent from cloud-init and connects back");
+
+    private final String displayName;
+
+    MultipassLaunchMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,24 @@
+package io.hainenber.jenkins.multipass;
+
+/**
+ * Timed phases of launching a Multipass agent.
+ */
+public enum MultipassLaunchPhase {
+    CREATE_INSTANCE("Create instance"),
+    ASSIGN_IP("IP assignment"),
+    BOOT("Boot"),
+    CLOUD_INIT("cloud-init"),
+    SSH_WAIT("SSH wait"),
+    REMOTING_JAR_COPY("remoting.jar copy"),
+    CHANNEL_SETUP("Channel setup");
+
+    private final String displayName;
+
+    MultipassLaunchPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
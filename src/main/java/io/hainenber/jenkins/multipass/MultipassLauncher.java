@@ -9,31 +9,34 @@ import com.trilead.ssh2.Connection;
 import com.trilead.ssh2.SCPClient;
 import hudson.AbortException;
 import hudson.model.Node;
-import hudson.model.Slave;
 import hudson.model.TaskListener;
 import hudson.remoting.Channel;
 import hudson.security.ACL;
 import hudson.slaves.ComputerLauncher;
 import hudson.slaves.SlaveComputer;
-import hudson.util.NamingThreadFactory;
+import io.hainenber.jenkins.multipass.sdk.InstanceState;
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import io.hainenber.jenkins.multipass.sdk.MultipassInstance;
 import jakarta.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.cloudstats.CloudStatistics;
+import org.jenkinsci.plugins.cloudstats.PhaseExecutionAttachment;
+import org.jenkinsci.plugins.cloudstats.ProvisioningActivity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class MultipassLauncher extends ComputerLauncher {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipassLauncher.class);
-    private final String REMOTING_JAR = "remoting.jar";
-    private final MultipassCloud cloud;
+    private final String REMOTING_JAR = MultipassRemotingJar.FILE_NAME;
+    private final String cloudName;
 
     /**
      * Constructor for MultipassLauncher.
@@ -42,7 +45,22 @@ public class MultipassLauncher extends ComputerLauncher {
      */
     public MultipassLauncher(MultipassCloud cloud) {
         super();
-        this.cloud = cloud;
+        this.cloudName = cloud.getName();
+    }
+
+    public String getCloudName() {
+        return cloudName;
+    }
+
+    /**
+     * Look up the cloud by name, so that launchers loaded from disk use the configured cloud.
+     */
+    private static MultipassCloud getCloud(MultipassComputer computer) throws AbortException {
+        var cloud = computer.getCloud();
+        if (cloud == null) {
+            throw new AbortException("Cannot find the Multipass cloud of agent " + computer.getName());
+        }
+        return cloud;
     }
 
     public StandardUsernameCredentials getSshCredentialsId(String credentialsId) {
@@ -60,27 +78,32 @@ public class MultipassLauncher extends ComputerLauncher {
             throws IOException, InterruptedException {
         try {
             MultipassComputer computer = (MultipassComputer) slaveComputer;
-            computer.setCloud(cloud);
             launchScript(computer, listener);
         } catch (IOException e) {
             e.printStackTrace(listener.error(e.getMessage()));
             LOGGER.info(
                     "[multipass-cloud] Terminating Multipass agent {} due to problem launching or connecting to it.",
                     slaveComputer.getName());
-            var multipassComputer = ((MultipassComputer) slaveComputer).getNode();
-            if (multipassComputer != null) {
-                multipassComputer.terminate();
+            var multipassComputer = (MultipassComputer) slaveComputer;
+            var node = multipassComputer.getNode();
+            if (node != null && multipassComputer.markTerminating()) {
+                node.terminate();
             }
         }
     }
 
-    protected void launchScript(MultipassComputer computer, TaskListener listener) throws IOException {
+    protected void launchScript(MultipassComputer computer, TaskListener listener)
+            throws IOException, InterruptedException {
         Node node = computer.getNode();
         if (node == null) {
             LOGGER.info("[multipass-cloud] Not launching {} since it is missing a node.", computer);
             return;
         }
 
+        var cloud = getCloud(computer);
+        var registry = cloud.getAgentRegistry();
+        registry.transition(computer.getName(), MultipassAgentRegistry.State.LAUNCHING);
+
         // Find matching template by name for the computer.
         var matchingTemplates =
                 cloud.getTemplatesByName(computer.getOriginTemplate().getName());
@@ -89,92 +112,171 @@ public class MultipassLauncher extends ComputerLauncher {
             return;
         }
 
-        LOGGER.info("[multipass-cloud] Creating new Multipass VM {} with {}", computer, listener);
-
-        synchronized (this) {
-            try {
-                var instanceName = computer.getDisplayName();
-                var multipassClient = cloud.getMultipassClient();
-                var matchingTemplate = matchingTemplates.get(0);
-
-                // Only create new Multipass VM when there's no VM with matching name identifier.
-                // If there's matched one, the launcher will launch its Computer abstraction.
-                var existingInstance = multipassClient.getInstance(instanceName);
-                if (existingInstance.isEmpty()) {
-                    multipassClient.createInstance(
-                            instanceName,
-                            matchingTemplate.getCloudInitConfig(),
-                            matchingTemplate.getCpu(),
-                            matchingTemplate.getMemory(),
-                            matchingTemplate.getDisk(),
-                            matchingTemplate.getDistroAlias());
-                }
+        var instanceName = computer.getDisplayName();
+        var multipassClient = cloud.getHost(instanceName).getMultipassClient();
+        var existingInstance = multipassClient.getInstance(instanceName);
+        // Agents loaded from disk are re-attached to their surviving VM, never given a new one.
+        if (node instanceof MultipassAgent agent && agent.isRestored() && existingInstance.isEmpty()) {
+            throw new AbortException("The Multipass VM of restored agent " + instanceName + " is gone");
+        }
 
-                // Establish SSH connection between controller and agent.
-                var instance = multipassClient.getInstance(instanceName);
-                if (instance.isEmpty()) {
-                    throw new RuntimeException("Cannot find the instance named " + instanceName);
-                }
-                var instanceHostIp = instance.get().getIpv4();
-                if (instanceHostIp == null) {
-                    throw new RuntimeException("Cannot find the instance named " + instanceName);
+        // Launch slots bound VM creations, re-attaching to an existing VM does not need one.
+        var launchSlots = cloud.getLaunchSemaphore();
+        boolean holdsLaunchSlot = false;
+        try {
+            if (existingInstance.isEmpty()) {
+                LOGGER.info("[multipass-cloud] Creating new Multipass VM {} with {}", computer, listener);
+                if (!launchSlots.tryAcquire()) {
+                    LOGGER.info("[multipass-cloud] Waiting for a free launch slot for agent '{}'", computer);
+                    launchSlots.acquire();
                 }
-                var sshConnection = new Connection(instanceHostIp.get(0), computer.getSshPort());
+                holdsLaunchSlot = true;
+            }
+            // The launch timeout of the orphan reconciler runs from here, not from the queueing.
+            registry.markLaunchStarted(computer.getName(), System.nanoTime());
 
-                var launcherExecutorService = Executors.newSingleThreadExecutor(new NamingThreadFactory(
-                        Executors.defaultThreadFactory(),
-                        String.format("Launching SSH connection for %s node", computer.getName())));
-                Set<Callable<Boolean>> callables = getCallables(computer, listener, sshConnection, matchingTemplate);
+            var readinessProbe = new MultipassReadinessProbe(cloud.getLaunchTimeoutSeconds());
+            var matchingTemplate = matchingTemplates.get(0);
 
-                LOGGER.info("[multipass-cloud] Waiting for agent '{}' to be connected", computer);
+            // Restored agents may find their VM stopped, agents resumed from the parked pool find it suspended.
+            var existingState = existingInstance.map(MultipassInstance::getState).orElse(null);
+            if (existingState == InstanceState.STOPPED || existingState == InstanceState.SUSPENDED) {
+                LOGGER.info("[multipass-cloud] Starting the {} VM of agent '{}'", existingState, instanceName);
+                multipassClient.startInstance(instanceName);
+            }
 
-                try {
-                    launcherExecutorService.invokeAll(callables);
-                } catch (Throwable e) {
-                    LOGGER.error("Launch failed due to %", e);
-                }
+            // Only create new Multipass VM when there's no VM with matching name identifier.
+            // If there's matched one, the launcher will launch its Computer abstraction.
+            if (existingInstance.isEmpty()) {
+                long createStart = System.nanoTime();
+                cloud.launchInstance(instanceName, matchingTemplate);
+                recordPhase(computer, matchingTemplate, MultipassLaunchPhase.CREATE_INSTANCE, createStart);
+            }
 
-            } catch (Exception e) {
-                LOGGER.error("[multipass-cloud] Exception when launching Multipass VM: {}", e.getMessage());
-                listener.fatalError("[multipass-cloud] Exception when launching Multipass VM: %s", e.getMessage());
-                try {
-                    MultipassCloud.jenkinsController().removeNode(node);
-                } catch (IOException e1) {
-                    LOGGER.error("[multipass-cloud] Failed to terminate agent: {}", node.getDisplayName(), e);
-                }
+            LOGGER.info("[multipass-cloud] Waiting for agent '{}' to be connected", computer);
+            connectAgent(computer, listener, multipassClient, matchingTemplate, readinessProbe);
+            registry.transition(computer.getName(), MultipassAgentRegistry.State.ONLINE);
+        } catch (InterruptedException e) {
+            // Aborted launches, e.g. on controller shutdown, must not leave their VM and node behind.
+            abortLaunch(cloud, computer, node, listener, "Launch of Multipass VM was interrupted");
+            throw e;
+        } catch (Exception e) {
+            abortLaunch(cloud, computer, node, listener, "Exception when launching Multipass VM: " + e.getMessage());
+        } finally {
+            if (holdsLaunchSlot) {
+                launchSlots.release();
             }
         }
     }
 
-    private Set<Callable<Boolean>> getCallables(
+    /**
+     * Give up on a failed launch: delete the VM, if any, so that its host resources are released,
+     * and remove the agent.
+     */
+    private static void abortLaunch(
+            MultipassCloud cloud, MultipassComputer computer, Node node, TaskListener listener, String reason) {
+        LOGGER.error("[multipass-cloud] {}", reason);
+        listener.fatalError("[multipass-cloud] %s", reason);
+        cloud.getAgentRegistry().transition(computer.getName(), MultipassAgentRegistry.State.TERMINATING);
+        cloud.getTerminationQueue().enqueue(computer.getDisplayName());
+        try {
+            MultipassCloud.jenkinsController().removeNode(node);
+        } catch (IOException e) {
+            LOGGER.error("[multipass-cloud] Failed to terminate agent: {}", node.getDisplayName(), e);
+        }
+    }
+
+    /**
+     * Connect the agent to its VM once the VM exists, over SSH.
+     * @param computer the agent's computer.
+     * @param listener the launch log.
+     * @param client the {@link MultipassClient} of the VM's host.
+     * @param template the template the agent is launched from.
+     * @param readinessProbe the probe holding the launch deadline.
+     * @throws Exception if the agent cannot be connected.
+     */
+    protected void connectAgent(
             MultipassComputer computer,
             TaskListener listener,
-            Connection sshConnection,
-            MultipassAgentTemplate template) {
-        Set<Callable<Boolean>> callables = new HashSet<>();
-        callables.add(() -> {
-            // Accept widely used cryptographic algorithms.
-            sshConnection.setServerHostKeyAlgorithms(new String[] {
-                "ssh-rsa", "rsa-sha2-256", "rsa-sha2-512",
-            });
+            MultipassClient client,
+            MultipassAgentTemplate template,
+            MultipassReadinessProbe readinessProbe)
+            throws Exception {
+        // Query the instance directly as the cached inventory may not have its IP address yet.
+        long ipStart = System.nanoTime();
+        var instanceHostIp = readinessProbe.awaitIpv4(client, computer.getName());
+        recordPhase(computer, template, MultipassLaunchPhase.ASSIGN_IP, ipStart);
+        awaitCloudInit(computer, listener, client, template, readinessProbe);
+
+        long sshWaitStart = System.nanoTime();
+        readinessProbe.awaitTcpPort(instanceHostIp, computer.getSshPort());
+        var sshConnection = new Connection(instanceHostIp, computer.getSshPort());
+
+        // Accept widely used cryptographic algorithms.
+        sshConnection.setServerHostKeyAlgorithms(new String[] {
+            "ssh-rsa", "rsa-sha2-256", "rsa-sha2-512",
+        });
 
-            // Connect and authenticate.
-            sshConnectToAgent(computer, listener, sshConnection, template);
+        // Connect and authenticate.
+        sshConnectToAgent(computer, listener, sshConnection, template, readinessProbe);
 
-            // Display SSH connection activities onto agent's console log.
-            sshConnection.exec("set", listener.getLogger());
+        // Display SSH connection activities onto agent's console log.
+        sshConnection.exec("set", listener.getLogger());
+        recordPhase(computer, template, MultipassLaunchPhase.SSH_WAIT, sshWaitStart);
 
-            var agentRemoteFs = Objects.requireNonNull(computer.getNode()).getRemoteFS();
+        var agentRemoteFs = Objects.requireNonNull(computer.getNode()).getRemoteFS();
 
-            // Move the necessary remoting.jar so that
-            copyRemotingJarToAgent(listener, agentRemoteFs, sshConnection);
+        // Move the necessary remoting.jar so that
+        long jarCopyStart = System.nanoTime();
+        copyRemotingJarToAgent(listener, agentRemoteFs, sshConnection);
+        recordPhase(computer, template, MultipassLaunchPhase.REMOTING_JAR_COPY, jarCopyStart);
 
-            // Initiate the remoting agent
-            startAgent(computer, listener, agentRemoteFs, sshConnection);
+        // Initiate the remoting agent
+        long channelStart = System.nanoTime();
+        startAgent(computer, listener, agentRemoteFs, sshConnection);
+        recordPhase(computer, template, MultipassLaunchPhase.CHANNEL_SETUP, channelStart);
+    }
 
-            return Boolean.TRUE;
-        });
-        return callables;
+    /**
+     * Wait for cloud-init to finish on the agent's VM, if the template asks for it.
+     */
+    protected void awaitCloudInit(
+            MultipassComputer computer,
+            TaskListener listener,
+            MultipassClient client,
+            MultipassAgentTemplate template,
+            MultipassReadinessProbe readinessProbe)
+            throws IOException {
+        if (template.isWaitForCloudInit()) {
+            long cloudInitStart = System.nanoTime();
+            listener.getLogger().println("[multipass-cloud] Waiting for cloud-init to finish on " + computer.getName());
+            readinessProbe.awaitCloudInit(client, computer.getName());
+            recordPhase(computer, template, MultipassLaunchPhase.CLOUD_INIT, cloudInitStart);
+        }
+    }
+
+    /**
+     * Record the duration of a completed launch phase in the cloud's metrics and
+     * as an attachment of the agent's provisioning activity.
+     */
+    protected void recordPhase(
+            MultipassComputer computer, MultipassAgentTemplate template, MultipassLaunchPhase phase, long startNanos) {
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        var cloud = computer.getCloud();
+        if (cloud != null) {
+            cloud.getLaunchMetrics().record(template.getName(), phase, durationMillis);
+        }
+
+        var cloudStatistics = CloudStatistics.get();
+        var activity = cloudStatistics.getActivityFor(computer);
+        if (activity != null) {
+            cloudStatistics.attach(
+                    activity,
+                    ProvisioningActivity.Phase.LAUNCHING,
+                    new PhaseExecutionAttachment(
+                            ProvisioningActivity.Status.OK,
+                            String.format("%s took %d ms", phase.getDisplayName(), durationMillis)));
+        }
     }
 
     private void startAgent(MultipassComputer computer, TaskListener listener, String absoluteRemoteFs, Connection conn)
@@ -209,15 +311,20 @@ public class MultipassLauncher extends ComputerLauncher {
         SCPClient scpClient = new SCPClient(conn);
 
         try {
+            var remotingJar = MultipassRemotingJar.get();
+
+            // Skip the transfer when the agent already has this exact jar, e.g. on reused or cloned VMs.
+            var agentJarDigest = new ByteArrayOutputStream();
+            conn.exec("sha256sum " + remotingJarPath + " 2>/dev/null | cut -d' ' -f1", agentJarDigest);
+            if (remotingJar.getSha256().equalsIgnoreCase(agentJarDigest.toString(StandardCharsets.UTF_8).trim())) {
+                logger.println("[multipass-cloud] Agent already has an up-to-date " + REMOTING_JAR);
+                return;
+            }
+
             // Create directory to contain remoting.jar
             conn.exec("mkdir -p " + remotingDirJarPath, logger);
-            // Delete remoting.jar if exists.
-            if (conn.exec("test -f " + remotingJarPath, logger) == 0) {
-                conn.exec("rm " + remotingJarPath, logger);
-            }
-            // Copy remoting.jar
-            var agentJar = new Slave.JnlpJar(REMOTING_JAR).readFully();
-            scpClient.put(agentJar, REMOTING_JAR, String.valueOf(remotingDirJarPath), "0644");
+            // Copy remoting.jar, overwriting any outdated one.
+            scpClient.put(remotingJar.getContent(), REMOTING_JAR, String.valueOf(remotingDirJarPath), "0644");
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -227,21 +334,24 @@ public class MultipassLauncher extends ComputerLauncher {
             MultipassComputer computer,
             TaskListener listener,
             Connection sshConnection,
-            MultipassAgentTemplate template)
+            MultipassAgentTemplate template,
+            MultipassReadinessProbe readinessProbe)
             throws Exception {
-        int agentConnectTimeout = 10_000; // 10 seconds
+        int maxAgentConnectTimeout = 10_000; // 10 seconds
 
         String hostName = computer.getName();
         Integer portNumber = computer.getSshPort();
 
         LOGGER.info(
-                "[multipass-cloud] Connecting to {} host on portNumber {} with timeout {}",
+                "[multipass-cloud] Connecting to {} host on portNumber {} with {}ms left before launch deadline",
                 hostName,
                 portNumber,
-                agentConnectTimeout);
+                readinessProbe.getRemainingMillis());
 
         while (true) {
             try {
+                int agentConnectTimeout =
+                        (int) Math.max(Math.min(readinessProbe.getRemainingMillis(), maxAgentConnectTimeout), 1);
                 // Connect via SSH
                 sshConnection.connect(
                         // TODO: verify the host key in a correct way
@@ -249,34 +359,33 @@ public class MultipassLauncher extends ComputerLauncher {
                         agentConnectTimeout,
                         agentConnectTimeout);
                 LOGGER.info("[multipass-cloud] Established SSH connection with host {}", hostName);
-
-                // Authenticate
-                StandardUsernameCredentials credentials = getSshCredentialsId(template.getSshCredentialsId());
-                if (SSHAuthenticator.newInstance(sshConnection, credentials).authenticate(listener)
-                        && sshConnection.isAuthenticationComplete()) {
-                    LOGGER.info(
-                            "Successfully authenticated agent {} with credentials \"{}\"",
-                            computer.getName(),
-                            credentials.getId());
-                } else {
-                    LOGGER.error(
-                            "Failed to authenticate agent {} with credentials \"{}\"",
-                            computer.getName(),
-                            credentials.getId());
-                }
-
-                return;
             } catch (IOException e) {
                 if (computer.isOffline() && StringUtils.isNotBlank(computer.getOfflineCauseReason())) {
                     throw new AbortException(String.format(
                             "SSH connection cannot be established and the computer is now offline: %s", e));
-                } else {
-                    LOGGER.error(
-                            "Waiting for SSH server on agent side to be ready. Sleeping for 5 second before next attempt. Possible error: ",
-                            e);
-                    Thread.sleep(5000);
                 }
+                readinessProbe.checkDeadline("SSH server on " + hostName, e);
+                LOGGER.warn("[multipass-cloud] Waiting for SSH server on {} to be ready: {}", hostName, e.getMessage());
+                readinessProbe.backoff();
+                continue;
+            }
+
+            // Authenticate, there is no point in retrying with the same credentials.
+            StandardUsernameCredentials credentials = getSshCredentialsId(template.getSshCredentialsId());
+            if (credentials == null) {
+                throw new AbortException(
+                        String.format("Cannot find SSH credentials with ID '%s'", template.getSshCredentialsId()));
+            }
+            if (SSHAuthenticator.newInstance(sshConnection, credentials).authenticate(listener)
+                    && sshConnection.isAuthenticationComplete()) {
+                LOGGER.info(
+                        "Successfully authenticated agent {} with credentials \"{}\"",
+                        computer.getName(),
+                        credentials.getId());
+                return;
             }
+            throw new AbortException(String.format(
+                    "Failed to authenticate agent %s with credentials \"%s\"", computer.getName(), credentials.getId()));
         }
     }
 
@@ -0,0 +1,185 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.Cloud;
+import io.hainenber.jenkins.multipass.sdk.MultipassInstance;
+import io.hainenber.jenkins.multipass.sdk.MultipassInventory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically deletes Multipass VMs leaked by a {@link MultipassCloud}: instances named like its agents
+ * that no Jenkins agent owns any more, e.g. after a controller crash or a failed deletion, and agents
+ * stuck launching. Every sweep works off a single inventory snapshot per host, and a VM is only reclaimed
+ * once it has been seen leaked for a whole grace period.
+ */
+@Extension
+@SuppressWarnings("unused")
+public class MultipassOrphanReconciler extends AsyncPeriodicWork {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassOrphanReconciler.class);
+
+    static final long RECURRENCE_PERIOD_MINUTES =
+            SystemProperties.getLong(MultipassOrphanReconciler.class.getName() + ".recurrencePeriodMinutes", 5L);
+    static final long GRACE_PERIOD_MINUTES =
+            SystemProperties.getLong(MultipassOrphanReconciler.class.getName() + ".gracePeriodMinutes", 10L);
+
+    // Cloud name to instance name to the time it was first seen leaked, only touched by the sweep thread.
+    private final Map<String, Map<String, Long>> suspectsByCloud = new ConcurrentHashMap<>();
+
+    public MultipassOrphanReconciler() {
+        super("Multipass orphan VM reconciler");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.MINUTES.toMillis(RECURRENCE_PERIOD_MINUTES);
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        Set<String> cloudNames = ConcurrentHashMap.newKeySet();
+        for (Cloud cloud : Jenkins.get().clouds) {
+            if (cloud instanceof MultipassCloud multipassCloud) {
+                cloudNames.add(multipassCloud.getName());
+                var reclaimed = reconcile(multipassCloud, System.nanoTime());
+                if (!reclaimed.isEmpty()) {
+                    listener.getLogger()
+                            .printf(
+                                    "Reclaimed %d leaked Multipass instance(s) of cloud '%s': %s%n",
+                                    reclaimed.size(), multipassCloud.getName(), reclaimed);
+                }
+            }
+        }
+        suspectsByCloud.keySet().retainAll(cloudNames);
+    }
+
+    /**
+     * Run one sweep over given cloud.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param nowNanos current value of {@link System#nanoTime()}.
+     * @return names of the instances scheduled for deletion.
+     */
+    List<String> reconcile(MultipassCloud cloud, long nowNanos) {
+        var leaked = new ArrayList<String>();
+        boolean complete = true;
+        for (MultipassHost host : cloud.getHosts()) {
+            MultipassInventory inventory;
+            try {
+                host.getMultipassClient().invalidateInventory();
+                inventory = host.getMultipassClient().getInventory();
+            } catch (IOException e) {
+                LOGGER.warn("[multipass-cloud] Cannot list Multipass instances on {}", host, e);
+                complete = false;
+                continue;
+            }
+            for (String instanceName : findOrphans(cloud, inventory, name -> isOwned(cloud, name))) {
+                // Orphans have no placement of their own, deletion must still target their host.
+                cloud.recordPlacement(instanceName, host);
+                leaked.add(instanceName);
+            }
+        }
+
+        // Agents whose launch outlived its own timeout are treated as leaked too.
+        long launchTimeoutNanos = TimeUnit.SECONDS.toNanos(cloud.getLaunchTimeoutSeconds());
+        leaked.addAll(findStuckLaunches(cloud.getAgentRegistry(), launchTimeoutNanos, nowNanos));
+
+        var suspects = suspectsByCloud.computeIfAbsent(cloud.getName(), k -> new HashMap<>());
+        if (complete) {
+            suspects.keySet().retainAll(leaked);
+        }
+        long graceNanos = TimeUnit.MINUTES.toNanos(GRACE_PERIOD_MINUTES);
+        var reclaimed = new ArrayList<String>();
+        for (String instanceName : leaked) {
+            long firstSeen = suspects.computeIfAbsent(instanceName, k -> nowNanos);
+            if (nowNanos - firstSeen < graceNanos) {
+                continue;
+            }
+            suspects.remove(instanceName);
+            reclaimed.add(instanceName);
+            reclaim(cloud, instanceName);
+        }
+
+        if (!reclaimed.isEmpty()) {
+            LOGGER.info(
+                    "[multipass-cloud] Reclaimed {} leaked Multipass instance(s) of cloud '{}': {}",
+                    reclaimed.size(),
+                    cloud.getName(),
+                    reclaimed);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Instances of the snapshot named like agents of given cloud and not owned by anything.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param inventory a snapshot of the daemon's instances.
+     * @param owned tells whether an instance name is still in use.
+     * @return a mutable list of instance names.
+     */
+    static List<String> findOrphans(MultipassCloud cloud, MultipassInventory inventory, Predicate<String> owned) {
+        return new ArrayList<>(inventory.getInstances().stream()
+                .map(MultipassInstance::getName)
+                .filter(cloud::isAgentInstanceName)
+                .filter(owned.negate())
+                .toList());
+    }
+
+    /**
+     * Launching agents whose launch started longer ago than the launch timeout. Launches still
+     * queued for a launch slot or a launch token have not started and are never stuck.
+     * @param registry the cloud's {@link MultipassAgentRegistry}.
+     * @param launchTimeoutNanos the cloud's launch timeout.
+     * @param nowNanos current value of {@link System#nanoTime()}.
+     * @return a list of agent names.
+     */
+    static List<String> findStuckLaunches(MultipassAgentRegistry registry, long launchTimeoutNanos, long nowNanos) {
+        return registry.getAgentNames(MultipassAgentRegistry.State.LAUNCHING).stream()
+                .filter(name -> registry.getLaunchStartNanos(name).stream()
+                        .anyMatch(startNanos -> nowNanos - startNanos >= launchTimeoutNanos))
+                .toList();
+    }
+
+    private static boolean isOwned(MultipassCloud cloud, String instanceName) {
+        return cloud.getAgentRegistry().contains(instanceName)
+                || Jenkins.get().getNode(instanceName) instanceof MultipassAgent
+                || cloud.getWarmPool().contains(instanceName)
+                || cloud.getParkedPool().contains(instanceName)
+                || cloud.getTerminationQueue().contains(instanceName);
+    }
+
+    private static void reclaim(MultipassCloud cloud, String instanceName) {
+        Node node = Jenkins.get().getNode(instanceName);
+        if (node instanceof MultipassAgent agent) {
+            if (agent.toComputer() instanceof MultipassComputer computer && !computer.markTerminating()) {
+                // Already being terminated, which deletes or parks the VM.
+                return;
+            }
+            LOGGER.info("[multipass-cloud] Terminating agent '{}' stuck launching", instanceName);
+            try {
+                // Enqueues the VM for deletion as well.
+                agent.terminate();
+                return;
+            } catch (InterruptedException | IOException e) {
+                LOGGER.warn("[multipass-cloud] Failed to terminate stuck agent '{}'", instanceName, e);
+            }
+        } else {
+            LOGGER.info("[multipass-cloud] Deleting orphan instance '{}'", instanceName);
+        }
+        cloud.getAgentRegistry().remove(instanceName);
+        cloud.getTerminationQueue().enqueue(instanceName);
+    }
+}
@@ -0,0 +1,170 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.model.Computer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-cloud pool of suspended VMs of finished agents, resumed by {@link MultipassCloud#provision}
+ * instead of launching new ones. The pool is bounded by the cloud's parked memory and disk budgets,
+ * the oldest parked VMs being deleted first. Parked VMs keep their reservation on their host.
+ * The pool is not persisted: VMs parked before a controller restart are reclaimed as leaked.
+ */
+public class MultipassParkedPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassParkedPool.class);
+
+    // Oldest first, all guarded by this.
+    private final LinkedList<Entry> parked = new LinkedList<>();
+    private final Set<String> parkingInstances = ConcurrentHashMap.newKeySet();
+
+    private record Entry(String instanceName, String templateName, String specHash, long memoryBytes, long diskBytes) {}
+
+    /**
+     * Take the most recently parked VM of given template out of the pool.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return the name of a suspended instance, or empty if none matches.
+     */
+    public synchronized Optional<String> acquire(MultipassAgentTemplate template) {
+        var specHash = template.getSpecHash();
+        var iterator = parked.descendingIterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.templateName().equals(template.getName()) && entry.specHash().equals(specHash)) {
+                iterator.remove();
+                LOGGER.info(
+                        "[multipass-cloud] Resuming parked instance '{}' for template '{}'",
+                        entry.instanceName(),
+                        template.getName());
+                return Optional.of(entry.instanceName());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Number of parked VMs that {@link #acquire} can hand out for given template.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return the number of VMs.
+     */
+    public synchronized int getParkedCount(MultipassAgentTemplate template) {
+        var specHash = template.getSpecHash();
+        return (int) parked.stream()
+                .filter(e -> e.templateName().equals(template.getName()) && e.specHash().equals(specHash))
+                .count();
+    }
+
+    /**
+     * Check whether given instance is parked in the pool or being suspended for it.
+     * @param instanceName the instance name.
+     * @return true if the instance is owned by the pool.
+     */
+    public synchronized boolean contains(String instanceName) {
+        return parkingInstances.contains(instanceName)
+                || parked.stream().anyMatch(e -> e.instanceName().equals(instanceName));
+    }
+
+    /**
+     * Park the VM of a terminating agent in the background, if its template allows it and the VM
+     * fits in the budgets on its own. The caller deletes the VM itself when it is not accepted, unless
+     * it was refused because the pool already owns it.
+     * @param cloud the {@link MultipassCloud} owning this pool.
+     * @param instanceName name of the agent's VM.
+     * @param template the template the agent was launched from.
+     * @param remoteFs the agent's root directory, whose workspaces are cleared if the template asks for it.
+     * @param reusable false if the agent was retired because it may be in a bad state, e.g. after a failed build.
+     * @return true if the pool took over the VM.
+     */
+    public synchronized boolean offer(
+            MultipassCloud cloud,
+            String instanceName,
+            MultipassAgentTemplate template,
+            String remoteFs,
+            boolean reusable) {
+        if (!reusable || !template.isParkable() || contains(instanceName)) {
+            return false;
+        }
+        var resources = MultipassHostCapacity.of(template);
+        var budget = cloud.getParkedBudget();
+        if (resources.memoryBytes() > budget.memoryBytes() || resources.diskBytes() > budget.diskBytes()) {
+            return false;
+        }
+
+        parkingInstances.add(instanceName);
+        Computer.threadPoolForRemoting.submit(() -> park(cloud, instanceName, template, remoteFs));
+        return true;
+    }
+
+    private void park(MultipassCloud cloud, String instanceName, MultipassAgentTemplate template, String remoteFs) {
+        try {
+            var client = cloud.getHost(instanceName).getMultipassClient();
+            if (template.isResetWorkspaceOnPark()) {
+                client.exec(instanceName, List.of("sudo", "-n", "rm", "-rf", remoteFs + "/workspace"));
+            }
+            client.suspendInstance(instanceName);
+            add(instanceName, template.getName(), template.getSpecHash(), MultipassHostCapacity.of(template));
+            LOGGER.info("[multipass-cloud] Parked instance '{}' of template '{}'", instanceName, template.getName());
+        } catch (Exception e) {
+            LOGGER.warn("[multipass-cloud] Failed to park instance '{}', deleting it", instanceName, e);
+            cloud.getTerminationQueue().enqueue(instanceName);
+        } finally {
+            parkingInstances.remove(instanceName);
+        }
+        maintain(cloud);
+    }
+
+    /**
+     * Evict VMs of removed, changed or no longer parkable templates, then the oldest VMs
+     * until the pool fits in the cloud's budgets.
+     * @param cloud the {@link MultipassCloud} owning this pool.
+     */
+    public void maintain(MultipassCloud cloud) {
+        List<String> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>();
+            parked.removeIf(e -> {
+                boolean current = cloud.getTemplatesByName(e.templateName()).stream()
+                        .anyMatch(t -> t.isParkable() && t.getSpecHash().equals(e.specHash()));
+                if (!current) {
+                    evicted.add(e.instanceName());
+                }
+                return !current;
+            });
+            var budget = cloud.getParkedBudget();
+            evicted.addAll(trim(budget.memoryBytes(), budget.diskBytes()));
+        }
+
+        for (String instanceName : evicted) {
+            LOGGER.info("[multipass-cloud] Deleting evicted parked instance '{}'", instanceName);
+            cloud.getTerminationQueue().enqueue(instanceName);
+        }
+    }
+
+    synchronized void add(
+            String instanceName, String templateName, String specHash, MultipassHostCapacity.Resources resources) {
+        parked.addLast(
+                new Entry(instanceName, templateName, specHash, resources.memoryBytes(), resources.diskBytes()));
+    }
+
+    /**
+     * Remove the oldest parked VMs until the others fit in given budgets.
+     * @return names of the removed instances, oldest first.
+     */
+    synchronized List<String> trim(long memoryBudget, long diskBudget) {
+        long memoryBytes = parked.stream().mapToLong(Entry::memoryBytes).sum();
+        long diskBytes = parked.stream().mapToLong(Entry::diskBytes).sum();
+        var evicted = new ArrayList<String>();
+        while (!parked.isEmpty() && (memoryBytes > memoryBudget || diskBytes > diskBudget)) {
+            var oldest = parked.removeFirst();
+            memoryBytes -= oldest.memoryBytes();
+            diskBytes -= oldest.diskBytes();
+            evicted.add(oldest.instanceName());
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,56 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * How a cloud with several endpoints chooses the host of a new VM.
+ */
+public enum MultipassPlacementPolicy {
+    LEAST_LOADED("Least loaded: place each VM on the host with the most free resources") {
+        @Override
+        Optional<MultipassHost> choose(
+                MultipassCloud cloud, MultipassAgentTemplate template, List<MultipassHost> hosts) {
+            var candidates = hosts.stream()
+                    .filter(h -> h.getHostCapacity().fit(cloud, template) > 0)
+                    .toList();
+            // A host with unknown capacity always looks idle, so compare hosts by VM count as soon as one is.
+            boolean capacityKnown = candidates.stream().allMatch(h -> h.getHostCapacity().isBounded());
+            Comparator<MultipassHost> byLoad = capacityKnown
+                    ? Comparator.comparingDouble(h -> h.getLoad(cloud))
+                    : Comparator.comparingInt(h -> h.getHostCapacity().getReservationCount());
+            // Stable on ties, so that equally loaded hosts are used in the order they are listed.
+            return candidates.stream().min(byLoad);
+        }
+    },
+    FIRST_FIT("First fit: fill hosts in the order they are listed") {
+        @Override
+        Optional<MultipassHost> choose(
+                MultipassCloud cloud, MultipassAgentTemplate template, List<MultipassHost> hosts) {
+            return hosts.stream()
+                    .filter(h -> h.getHostCapacity().fit(cloud, template) > 0)
+                    .findFirst();
+        }
+    };
+
+    private final String displayName;
+
+    MultipassPlacementPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Choose the host of a new instance of given template.
+     * @param cloud a {@link MultipassCloud} object.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @param hosts the hosts of the cloud, in configuration order.
+     * @return the chosen host, or empty if the template fits on none of them.
+     */
+    abstract Optional<MultipassHost> choose(
+            MultipassCloud cloud, MultipassAgentTemplate template, List<MultipassHost> hosts);
+}
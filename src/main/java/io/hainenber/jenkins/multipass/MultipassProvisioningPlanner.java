@@ -0,0 +1,104 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the excess workload of a label once across the templates matching it,
+ * according to a {@link MultipassProvisioningPolicy} and within per-template and per-cloud caps.
+ * Demand is counted in executors, so templates with several executors per agent need fewer VMs.
+ */
+public final class MultipassProvisioningPlanner {
+    private MultipassProvisioningPlanner() {}
+
+    /**
+     * A template able to serve the demand.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @param headroom number of additional agents the template may still get.
+     */
+    public record Candidate(MultipassAgentTemplate template, int headroom) {}
+
+    private static final Comparator<Candidate> BY_SIZE = Comparator.comparing(
+                    (Candidate c) -> MultipassHostCapacity.of(c.template()).memoryBytes())
+            .thenComparing(c -> MultipassHostCapacity.of(c.template()).cpus())
+            .thenComparing(c -> MultipassHostCapacity.of(c.template()).diskBytes());
+
+    /**
+     * Plan how many agents to launch per template.
+     * @param policy a {@link MultipassProvisioningPolicy}.
+     * @param demand number of executors needed.
+     * @param cloudHeadroom number of additional agents the cloud may still get.
+     * @param candidates templates matching the label, in configuration order.
+     * @return number of agents per template, in launch order, without templates that get none.
+     */
+    public static Map<MultipassAgentTemplate, Integer> plan(
+            MultipassProvisioningPolicy policy, int demand, int cloudHeadroom, List<Candidate> candidates) {
+        int remaining = Math.max(demand, 0);
+        int remainingAgents = Math.max(cloudHeadroom, 0);
+        var eligible = new ArrayList<>(
+                candidates.stream().filter(c -> c.headroom() > 0).toList());
+        var plan = new LinkedHashMap<MultipassAgentTemplate, Integer>();
+        if (remaining == 0 || remainingAgents == 0 || eligible.isEmpty()) {
+            return plan;
+        }
+
+        switch (policy) {
+            case WEIGHTED -> {
+                var assigned = new int[eligible.size()];
+                while (remaining > 0 && remainingAgents > 0) {
+                    // Give the next agent to the template furthest below its weighted share.
+                    int next = -1;
+                    for (int i = 0; i < eligible.size(); i++) {
+                        if (assigned[i] >= eligible.get(i).headroom()) {
+                            continue;
+                        }
+                        if (next < 0 || (assigned[i] + 1) * (long) weight(eligible.get(next))
+                                < (assigned[next] + 1) * (long) weight(eligible.get(i))) {
+                            next = i;
+                        }
+                    }
+                    if (next < 0) {
+                        break;
+                    }
+                    assigned[next]++;
+                    remaining -= executors(eligible.get(next));
+                    remainingAgents--;
+                }
+                for (int i = 0; i < eligible.size(); i++) {
+                    if (assigned[i] > 0) {
+                        plan.put(eligible.get(i).template(), assigned[i]);
+                    }
+                }
+            }
+            case SMALLEST_FIT, PRIORITY_ORDER -> {
+                if (policy == MultipassProvisioningPolicy.SMALLEST_FIT) {
+                    // Stable sort, templates of the same size keep their configuration order.
+                    eligible.sort(BY_SIZE);
+                }
+                for (Candidate candidate : eligible) {
+                    if (remaining <= 0 || remainingAgents == 0) {
+                        break;
+                    }
+                    int executors = executors(candidate);
+                    int needed = (remaining + executors - 1) / executors;
+                    int count = Math.min(Math.min(needed, candidate.headroom()), remainingAgents);
+                    plan.put(candidate.template(), count);
+                    remaining -= count * executors;
+                    remainingAgents -= count;
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static int weight(Candidate candidate) {
+        return candidate.template().getWeight();
+    }
+
+    private static int executors(Candidate candidate) {
+        return candidate.template().getExecutorsPerAgent();
+    }
+}
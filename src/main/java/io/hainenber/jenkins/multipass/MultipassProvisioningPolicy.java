@@ -0,0 +1,20 @@
+package io.hainenber.jenkins.multipass;
+
+/**
+ * How a cloud chooses between several templates matching the same label.
+ */
+public enum MultipassProvisioningPolicy {
+    PRIORITY_ORDER("Priority order: fill templates in the order they are listed"),
+    SMALLEST_FIT("Smallest fit: prefer the template with the smallest VMs that still fit on the host"),
+    WEIGHTED("Weighted: spread agents across templates according to their weight");
+
+    private final String displayName;
+
+    MultipassProvisioningPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
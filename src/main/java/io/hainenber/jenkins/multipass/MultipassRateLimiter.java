@@ -0,0 +1,109 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.Timer;
+
+/**
+ * Token bucket bounding how fast a cloud creates agents. Up to <code>burst</code> agents are
+ * created right away, then <code>launchesPerMinute</code> steadily. Demand beyond that is queued
+ * in order and released as tokens become available, never dropped.
+ */
+public class MultipassRateLimiter {
+    private final Executor executor;
+
+    // All guarded by this.
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+    private int burst;
+    private double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+    private boolean drainScheduled;
+
+    /**
+     * Constructor for MultipassRateLimiter, starting with a full bucket.
+     * @param executor runs the released tasks.
+     * @param burst number of tasks that may be released at once.
+     * @param launchesPerMinute steady number of tasks released per minute.
+     */
+    public MultipassRateLimiter(Executor executor, int burst, int launchesPerMinute) {
+        this.executor = executor;
+        configure(burst, launchesPerMinute);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Apply new limits without losing queued tasks or accumulated tokens.
+     * @param burst number of tasks that may be released at once.
+     * @param launchesPerMinute steady number of tasks released per minute.
+     */
+    public synchronized void configure(int burst, int launchesPerMinute) {
+        refill();
+        this.burst = Math.max(burst, 1);
+        this.tokensPerNano = Math.max(launchesPerMinute, 1) / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = Math.min(this.tokens, this.burst);
+    }
+
+    /**
+     * Queue a task, to be run once a token is available.
+     * @param task the task to run.
+     * @return a future completed with the task result.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        var future = new CompletableFuture<T>();
+        synchronized (this) {
+            pending.add(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        drain();
+        return future;
+    }
+
+    /**
+     * Number of tasks waiting for a token.
+     * @return the queue length.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (lastRefillNanos != 0) {
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+        }
+        lastRefillNanos = now;
+    }
+
+    private synchronized void drain() {
+        refill();
+        while (!pending.isEmpty() && tokens >= 1) {
+            tokens -= 1;
+            executor.execute(pending.poll());
+        }
+        if (!pending.isEmpty() && !drainScheduled) {
+            drainScheduled = true;
+            long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            Timer.get()
+                    .schedule(
+                            () -> {
+                                synchronized (this) {
+                                    drainScheduled = false;
+                                }
+                                drain();
+                            },
+                            Math.max(waitNanos, 1),
+                            TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.AbortException;
+import io.hainenber.jenkins.multipass.sdk.InstanceState;
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import io.hainenber.jenkins.multipass.sdk.MultipassInstance;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for a launching Multipass VM to become reachable, polling with jittered
+ * exponential backoff under one overall deadline per launch.
+ */
+public class MultipassReadinessProbe {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassReadinessProbe.class);
+
+    private static final long INITIAL_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final int MAX_PROBE_TIMEOUT_MILLIS = 2_000;
+
+    private final long timeoutSeconds;
+    private final long deadlineNanos;
+    private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+
+    /**
+     * Constructor for MultipassReadinessProbe, starting the deadline clock.
+     * @param timeoutSeconds total time allowed for the launch.
+     */
+    public MultipassReadinessProbe(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+    }
+
+    public long getRemainingMillis() {
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()), 0);
+    }
+
+    /**
+     * Fail if the launch deadline has passed.
+     * @param stage description of what the launch is waiting for.
+     * @param lastError the last failure observed, if any.
+     * @throws AbortException if the deadline has passed.
+     */
+    public void checkDeadline(String stage, Exception lastError) throws AbortException {
+        if (getRemainingMillis() > 0) {
+            return;
+        }
+        var message = String.format("Timed out after %ds waiting for %s", timeoutSeconds, stage);
+        if (lastError != null) {
+            message += ": " + lastError.getMessage();
+        }
+        var exception = new AbortException(message);
+        if (lastError != null) {
+            exception.initCause(lastError);
+        }
+        throw exception;
+    }
+
+    /**
+     * Sleep for the current backoff period, with jitter, then double it.
+     * @throws InterruptedException if interrupted while sleeping.
+     */
+    public void backoff() throws InterruptedException {
+        long jittered = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+        Thread.sleep(Math.min(jittered, getRemainingMillis()));
+        backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+    }
+
+    private void resetBackoff() {
+        backoffMillis = INITIAL_BACKOFF_MILLIS;
+    }
+
+    /**
+     * Poll the instance until Multipass reports an IPv4 address for it.
+     * @param client a {@link MultipassClient} object.
+     * @param instanceName the instance name.
+     * @return the first IPv4 address of the instance.
+     * @throws IOException if the instance disappears or the deadline passes.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public String awaitIpv4(MultipassClient client, String instanceName) throws IOException, InterruptedException {
+        resetBackoff();
+        var stage = "an IPv4 address on instance " + instanceName;
+        while (true) {
+            var instance = pollInstanceInfo(client, instanceName, stage);
+            var ipv4 = instance.map(MultipassInstance::getIpv4).orElse(List.of());
+            if (!ipv4.isEmpty()) {
+                return ipv4.get(0);
+            }
+            checkDeadline(stage, null);
+            backoff();
+        }
+    }
+
+    /**
+     * Poll the instance until Multipass reports it as running.
+     * @param client a {@link MultipassClient} object.
+     * @param instanceName the instance name.
+     * @throws IOException if the instance disappears or the deadline passes.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitRunning(MultipassClient client, String instanceName) throws IOException, InterruptedException {
+        resetBackoff();
+        var stage = "instance " + instanceName + " to be running";
+        while (true) {
+            var instance = pollInstanceInfo(client, instanceName, stage);
+            if (instance.map(MultipassInstance::getState).orElse(null) == InstanceState.RUNNING) {
+                return;
+            }
+            checkDeadline(stage, null);
+            backoff();
+        }
+    }
+
+    /**
+     * Query the instance once, treating daemon errors as transient until the deadline passes.
+     * @return the instance, or empty if the query failed and should be retried.
+     */
+    private Optional<MultipassInstance> pollInstanceInfo(MultipassClient client, String instanceName, String stage)
+            throws IOException {
+        try {
+            var instance = client.getInstanceInfo(instanceName);
+            if (instance.isEmpty()) {
+                throw new AbortException("Cannot find the instance named " + instanceName);
+            }
+            return instance;
+        } catch (AbortException e) {
+            throw e;
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            checkDeadline(stage, e);
+            LOGGER.debug("[multipass-cloud] Failed to query instance {}, retrying", instanceName, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Wait for cloud-init to finish on the instance, for no longer than the remaining launch time.
+     * @param client a {@link MultipassClient} object.
+     * @param instanceName the instance name.
+     * @throws IOException if cloud-init fails or the deadline passes.
+     */
+    public void awaitCloudInit(MultipassClient client, String instanceName) throws IOException {
+        var stage = "cloud-init to finish on instance " + instanceName;
+        checkDeadline(stage, null);
+        try {
+            client.waitForCloudInit(instanceName, getRemainingMillis());
+        } catch (InterruptedIOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            // The command was killed when the launch ran out of time.
+            checkDeadline(stage, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until a pre-launched VM is as ready as a launch would leave it before connecting:
+     * running, done with cloud-init and, for SSH agents, accepting connections on the SSH port.
+     * @param client a {@link MultipassClient} object.
+     * @param instanceName the instance name.
+     * @param launchMode how agents of the VM's template are connected.
+     * @throws IOException if the VM fails to get ready or the deadline passes.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitReady(MultipassClient client, String instanceName, MultipassLaunchMode launchMode)
+            throws IOException, InterruptedException {
+        if (launchMode == MultipassLaunchMode.SSH) {
+            var ipv4 = awaitIpv4(client, instanceName);
+            awaitCloudInit(client, instanceName);
+            awaitTcpPort(ipv4, MultipassComputer.SSH_PORT);
+        } else {
+            awaitRunning(client, instanceName);
+            awaitCloudInit(client, instanceName);
+        }
+    }
+
+    /**
+     * Probe given TCP port until it accepts connections.
+     * @param host the host address.
+     * @param port the port number.
+     * @throws IOException if the deadline passes.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitTcpPort(String host, int port) throws IOException, InterruptedException {
+        resetBackoff();
+        while (true) {
+            try (Socket socket = new Socket()) {
+                int probeTimeout = (int) Math.max(Math.min(getRemainingMillis(), MAX_PROBE_TIMEOUT_MILLIS), 1);
+                socket.connect(new InetSocketAddress(host, port), probeTimeout);
+                return;
+            } catch (IOException e) {
+                checkDeadline(String.format("port %d on %s to accept connections", port, host), e);
+            }
+            backoff();
+        }
+    }
+}
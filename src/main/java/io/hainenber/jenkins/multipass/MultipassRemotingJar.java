@@ -0,0 +1,71 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.Util;
+import hudson.model.Slave;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import jenkins.model.Jenkins;
+
+/**
+ * The controller's <code>remoting.jar</code> and its SHA-256 digest, read once per Jenkins version
+ * and shared by every agent launch.
+ */
+public final class MultipassRemotingJar {
+    public static final String FILE_NAME = "remoting.jar";
+
+    private static volatile MultipassRemotingJar cached;
+
+    private final String jenkinsVersion;
+    private final byte[] content;
+    private final String sha256;
+
+    private MultipassRemotingJar(String jenkinsVersion, byte[] content, String sha256) {
+        this.jenkinsVersion = jenkinsVersion;
+        this.content = content;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Get the cached <code>remoting.jar</code>, reading it again only after a Jenkins upgrade.
+     * @return a {@link MultipassRemotingJar} object.
+     * @throws IOException if the jar cannot be read.
+     */
+    public static MultipassRemotingJar get() throws IOException {
+        var version = String.valueOf(Jenkins.VERSION);
+        var current = cached;
+        if (current != null && Objects.equals(current.jenkinsVersion, version)) {
+            return current;
+        }
+        synchronized (MultipassRemotingJar.class) {
+            current = cached;
+            if (current == null || !Objects.equals(current.jenkinsVersion, version)) {
+                var content = new Slave.JnlpJar(FILE_NAME).readFully();
+                current = new MultipassRemotingJar(version, content, digest(content));
+                cached = current;
+            }
+            return current;
+        }
+    }
+
+    private static String digest(byte[] content) throws IOException {
+        try {
+            return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Content of the jar. Callers must not modify the returned array.
+     * @return the jar bytes.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+}
@@ -0,0 +1,136 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Descriptor;
+import hudson.model.Executor;
+import hudson.model.ExecutorListener;
+import hudson.model.Queue;
+import hudson.slaves.RetentionStrategy;
+import jakarta.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retention strategy for Multipass agents. An agent is retired after a number of builds
+ * (one for single-use agents) or after staying idle for too long, and right away after a
+ * build completed with problems.
+ */
+public class MultipassRetentionStrategy extends RetentionStrategy<MultipassComputer> implements ExecutorListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassRetentionStrategy.class);
+
+    private final int maxBuilds;
+    private final int idleMinutes;
+
+    private transient int acceptedBuilds;
+
+    /**
+     * Constructor for MultipassRetentionStrategy.
+     * @param maxBuilds number of builds before the agent is retired, 0 for no limit.
+     * @param idleMinutes idle time before the agent is retired, 0 to keep idle agents.
+     */
+    public MultipassRetentionStrategy(int maxBuilds, int idleMinutes) {
+        this.maxBuilds = maxBuilds;
+        this.idleMinutes = idleMinutes;
+    }
+
+    public int getMaxBuilds() {
+        return maxBuilds;
+    }
+
+    public int getIdleMinutes() {
+        return idleMinutes;
+    }
+
+    @Override
+    public void start(@Nonnull MultipassComputer c) {
+        c.connect(false);
+    }
+
+    @Override
+    public long check(@Nonnull MultipassComputer c) {
+        if (!c.isIdle() || c.isConnecting()) {
+            return 1;
+        }
+        if (!c.isAcceptingTasks()) {
+            LOGGER.info("[multipass-cloud] [{}]: Terminating retired agent", c);
+            terminate(c);
+        } else if (idleMinutes > 0
+                && c.isOnline()
+                && System.currentTimeMillis() - c.getIdleStartMilliseconds() > TimeUnit.MINUTES.toMillis(idleMinutes)) {
+            LOGGER.info("[multipass-cloud] [{}]: Terminating agent idle for more than {} minute(s)", c, idleMinutes);
+            terminate(c);
+        }
+        return 1;
+    }
+
+    @Override
+    public synchronized void taskAccepted(Executor executor, Queue.Task task) {
+        acceptedBuilds++;
+        if (maxBuilds > 0 && acceptedBuilds >= maxBuilds && executor.getOwner() instanceof MultipassComputer c) {
+            // Stop taking new builds, the agent is terminated once the current ones complete.
+            c.setAcceptingTasks(false);
+        }
+    }
+
+    @Override
+    public void taskCompleted(Executor executor, Queue.Task task, long durationMS) {
+        retireIfDone(executor);
+    }
+
+    @Override
+    public void taskCompletedWithProblems(Executor executor, Queue.Task task, long durationMS, Throwable problems) {
+        // The agent may have been left in a bad state, don't hand it out again nor park its VM.
+        if (executor.getOwner() instanceof MultipassComputer c) {
+            c.markRetiredAfterProblems();
+        }
+        executor.getOwner().setAcceptingTasks(false);
+        retireIfDone(executor);
+    }
+
+    private void retireIfDone(Executor executor) {
+        if (!(executor.getOwner() instanceof MultipassComputer c) || c.isAcceptingTasks()) {
+            return;
+        }
+        // The executor is still busy while this listener runs, check again once it is released.
+        Timer.get()
+                .schedule(
+                        () -> {
+                            if (c.isIdle()) {
+                                LOGGER.info("[multipass-cloud] [{}]: Terminating agent after its last task", c);
+                                terminate(c);
+                            }
+                        },
+                        500,
+                        TimeUnit.MILLISECONDS);
+    }
+
+    private static void terminate(MultipassComputer c) {
+        if (!c.markTerminating()) {
+            return;
+        }
+        var node = c.getNode();
+        if (node == null) {
+            return;
+        }
+        Computer.threadPoolForRemoting.submit(() -> {
+            try {
+                node.terminate();
+            } catch (Exception e) {
+                LOGGER.warn("[multipass-cloud] [{}]: Error encountered when trying to terminate agent", c, e);
+            }
+        });
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static final class DescriptorImpl extends Descriptor<RetentionStrategy<?>> {
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return "Multipass VM retention";
+        }
+    }
+}
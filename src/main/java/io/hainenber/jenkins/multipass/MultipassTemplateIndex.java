@@ -0,0 +1,85 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable index of a cloud's templates, built whenever the templates are set or loaded.
+ * Label sets are parsed once per template and label expression matches are memoized,
+ * so that provisioning checks do not scan and re-parse every template on each tick.
+ */
+public final class MultipassTemplateIndex {
+    static final MultipassTemplateIndex EMPTY = new MultipassTemplateIndex(List.of());
+
+    // Bounds the memo in case of an unusually large number of distinct label expressions.
+    static final int MAX_MEMOIZED_LABELS = 1024;
+
+    private record Entry(MultipassAgentTemplate template, Set<LabelAtom> labelSet) {}
+
+    private final List<Entry> entries;
+    private final Map<String, List<MultipassAgentTemplate>> templatesByName;
+    private final Map<String, List<MultipassAgentTemplate>> templatesByLabel = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for MultipassTemplateIndex.
+     * @param templates templates of the cloud, may contain null entries.
+     */
+    public MultipassTemplateIndex(List<MultipassAgentTemplate> templates) {
+        List<Entry> entries = new ArrayList<>();
+        Map<String, List<MultipassAgentTemplate>> templatesByName = new LinkedHashMap<>();
+        for (MultipassAgentTemplate template : templates) {
+            if (template == null) {
+                continue;
+            }
+            entries.add(new Entry(template, template.getLabelSet()));
+            templatesByName
+                    .computeIfAbsent(template.getName(), k -> new ArrayList<>())
+                    .add(template);
+        }
+        templatesByName.replaceAll((name, matches) -> List.copyOf(matches));
+        this.entries = List.copyOf(entries);
+        this.templatesByName = Collections.unmodifiableMap(templatesByName);
+    }
+
+    /**
+     * Templates whose labels satisfy given label expression.
+     * @param label a {@link Label} object, null matches no template.
+     * @return an immutable list of templates.
+     */
+    public List<MultipassAgentTemplate> getTemplatesByLabel(Label label) {
+        if (label == null) {
+            return List.of();
+        }
+        var expression = label.getExpression();
+        var matches = templatesByLabel.get(expression);
+        if (matches != null) {
+            return matches;
+        }
+
+        matches = entries.stream()
+                .filter(e -> label.matches(e.labelSet()))
+                .map(Entry::template)
+                .toList();
+        if (templatesByLabel.size() >= MAX_MEMOIZED_LABELS) {
+            templatesByLabel.clear();
+        }
+        templatesByLabel.putIfAbsent(expression, matches);
+        return matches;
+    }
+
+    /**
+     * Templates with given name.
+     * @param templateName the template name.
+     * @return an immutable list of templates.
+     */
+    public List<MultipassAgentTemplate> getTemplatesByName(String templateName) {
+        return templatesByName.getOrDefault(templateName, List.of());
+    }
+}
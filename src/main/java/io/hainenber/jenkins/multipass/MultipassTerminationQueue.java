@@ -0,0 +1,140 @@
+package io.hainenber.jenkins.multipass;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects Multipass VMs to be deleted and deletes them in batches, with one
+ * <code>multipass delete</code> and one <code>multipass purge</code> per host and flush window.
+ * Failed batches are retried with exponential backoff.
+ */
+public class MultipassTerminationQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassTerminationQueue.class);
+
+    static final long FLUSH_WINDOW_MILLIS =
+            SystemProperties.getLong(MultipassTerminationQueue.class.getName() + ".flushWindowMillis", 2_000L);
+    static final int MAX_ATTEMPTS =
+            SystemProperties.getInteger(MultipassTerminationQueue.class.getName() + ".maxAttempts", 5);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final MultipassCloud cloud;
+
+    // Instance name to number of failed deletion attempts, guarded by this.
+    private final Map<String, Integer> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    public MultipassTerminationQueue(MultipassCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    /**
+     * Schedule given VM for deletion in the next flush window.
+     * @param instanceName the instance name.
+     */
+    public synchronized void enqueue(String instanceName) {
+        pending.putIfAbsent(instanceName, 0);
+        scheduleFlush(FLUSH_WINDOW_MILLIS);
+    }
+
+    /**
+     * Check whether given VM is waiting for deletion.
+     * @param instanceName the instance name.
+     * @return true if the instance is queued.
+     */
+    public synchronized boolean contains(String instanceName) {
+        return pending.containsKey(instanceName);
+    }
+
+    private synchronized void scheduleFlush(long delayMillis) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        Timer.get().schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void flush() {
+        Map<String, Integer> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // One batch per host, as each daemon only knows about its own instances.
+        Map<MultipassHost, Map<String, Integer>> batchesByHost = new LinkedHashMap<>();
+        batch.forEach((name, attempts) -> batchesByHost
+                .computeIfAbsent(cloud.getHost(name), k -> new LinkedHashMap<>())
+                .put(name, attempts));
+        batchesByHost.forEach(this::delete);
+    }
+
+    private void delete(MultipassHost host, Map<String, Integer> batch) {
+        // Deletion runs off the timer thread, which is shared with the rest of Jenkins.
+        host.getMultipassClient().deleteInstancesAsync(batch.keySet()).whenComplete((ignored, e) -> {
+            if (e == null) {
+                batch.keySet().forEach(cloud::releaseHost);
+                LOGGER.info(
+                        "[multipass-cloud] Deleted {} Multipass instance(s) on {}: {}",
+                        batch.size(),
+                        host,
+                        batch.keySet());
+                return;
+            }
+            var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                LOGGER.warn("[multipass-cloud] Failed to delete Multipass instance(s) {}", batch.keySet(), cause);
+            } else {
+                LOGGER.error("[multipass-cloud] Unexpected error when deleting instance(s) {}", batch.keySet(), cause);
+            }
+            requeue(host, batch);
+        });
+    }
+
+    private void requeue(MultipassHost host, Map<String, Integer> batch) {
+        // One unknown instance fails the whole batch, so drop the ones that are already gone.
+        try {
+            host.getMultipassClient().invalidateInventory();
+            var inventory = host.getMultipassClient().getInventory();
+            batch.keySet().removeIf(name -> {
+                if (!inventory.contains(name)) {
+                    cloud.releaseHost(name);
+                    return true;
+                }
+                return false;
+            });
+        } catch (IOException e) {
+            LOGGER.warn("[multipass-cloud] Cannot list Multipass instances on {} before retrying deletion", host, e);
+        }
+
+        int maxAttempts = 0;
+        synchronized (this) {
+            for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                int attempts = entry.getValue() + 1;
+                if (attempts >= MAX_ATTEMPTS) {
+                    LOGGER.error(
+                            "[multipass-cloud] Giving up deleting Multipass instance '{}' after {} attempts",
+                            entry.getKey(),
+                            attempts);
+                    continue;
+                }
+                pending.merge(entry.getKey(), attempts, Math::max);
+                maxAttempts = Math.max(maxAttempts, attempts);
+            }
+            if (!pending.isEmpty()) {
+                long backoff = Math.min(FLUSH_WINDOW_MILLIS << maxAttempts, MAX_BACKOFF_MILLIS);
+                scheduleFlush(backoff);
+            }
+        }
+    }
+}
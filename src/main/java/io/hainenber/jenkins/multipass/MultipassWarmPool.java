@@ -0,0 +1,192 @@
+package io.hainenber.jenkins.multipass;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-template pool of already launched Multipass VMs that are waiting to be
+ * handed out as Jenkins agents by {@link MultipassCloud#provision}.
+ */
+public class MultipassWarmPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipassWarmPool.class);
+
+    private final Map<String, LinkedList<Entry>> idleByTemplate = new ConcurrentHashMap<>();
+    private final Map<String, Integer> warmingByTemplate = new ConcurrentHashMap<>();
+    private final Set<String> warmingInstances = ConcurrentHashMap.newKeySet();
+
+    private record Entry(String instanceName, String specHash) {}
+
+    /**
+     * Take a pre-launched VM for given template out of the pool.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return the name of a ready instance, or empty if the pool is drained.
+     */
+    public synchronized Optional<String> acquire(MultipassAgentTemplate template) {
+        var idle = idleByTemplate.get(template.getName());
+        if (idle == null || idle.isEmpty()) {
+            return Optional.empty();
+        }
+        var specHash = template.getSpecHash();
+        var iterator = idle.iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            // Entries launched from an outdated revision of the template are left for maintain() to delete.
+            if (entry.specHash().equals(specHash)) {
+                iterator.remove();
+                LOGGER.info(
+                        "[multipass-cloud] Handing out pre-launched instance '{}' for template '{}'",
+                        entry.instanceName(),
+                        template.getName());
+                return Optional.of(entry.instanceName());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Number of ready VMs in the pool that were launched from the current revision of given template.
+     * @param template a {@link MultipassAgentTemplate} object.
+     * @return the number of VMs {@link #acquire} can hand out.
+     */
+    public synchronized int getIdleCount(MultipassAgentTemplate template) {
+        var idle = idleByTemplate.get(template.getName());
+        if (idle == null) {
+            return 0;
+        }
+        var specHash = template.getSpecHash();
+        return (int) idle.stream().filter(e -> e.specHash().equals(specHash)).count();
+    }
+
+    /**
+     * Check whether given instance is currently parked in the pool or being pre-launched for it.
+     * @param instanceName the instance name.
+     * @return true if the instance is owned by the pool.
+     */
+    public synchronized boolean contains(String instanceName) {
+        return warmingInstances.contains(instanceName)
+                || idleByTemplate.values().stream()
+                        .flatMap(List::stream)
+                        .anyMatch(e -> e.instanceName().equals(instanceName));
+    }
+
+    /**
+     * Evict outdated and surplus VMs, then launch new ones in the background until
+     * every template has at least <code>minIdle</code> ready VMs.
+     * @param cloud the {@link MultipassCloud} owning this pool.
+     */
+    public void maintain(MultipassCloud cloud) {
+        var evicted = new ArrayList<String>();
+        var toLaunch = new ArrayList<MultipassAgentTemplate>();
+
+        synchronized (this) {
+            Set<String> templateNames = new HashSet<>();
+            var templates = cloud.getTemplates() == null ? List.<MultipassAgentTemplate>of() : cloud.getTemplates();
+            for (MultipassAgentTemplate template : templates) {
+                if (template == null) {
+                    continue;
+                }
+                templateNames.add(template.getName());
+
+                var idle = idleByTemplate.computeIfAbsent(template.getName(), k -> new LinkedList<>());
+                var specHash = template.getSpecHash();
+                idle.removeIf(e -> {
+                    if (!e.specHash().equals(specHash)) {
+                        evicted.add(e.instanceName());
+                        return true;
+                    }
+                    return false;
+                });
+                while (idle.size() > template.getMaxIdle()) {
+                    evicted.add(idle.removeLast().instanceName());
+                }
+
+                int warming = warmingByTemplate.getOrDefault(template.getName(), 0);
+                int missing = Math.max(template.getMinIdle() - idle.size() - warming, 0);
+                for (int i = 0; i < missing; i++) {
+                    toLaunch.add(template);
+                }
+                warmingByTemplate.put(template.getName(), warming + missing);
+            }
+
+            // Drop pools of templates that were removed from the cloud.
+            idleByTemplate.entrySet().removeIf(e -> {
+                if (!templateNames.contains(e.getKey())) {
+                    e.getValue().forEach(entry -> evicted.add(entry.instanceName()));
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        for (String instanceName : evicted) {
+            LOGGER.info("[multipass-cloud] Deleting evicted pre-launched instance '{}'", instanceName);
+            cloud.getTerminationQueue().enqueue(instanceName);
+        }
+        for (MultipassAgentTemplate template : toLaunch) {
+            // Refills take launch tokens like provisioning does, so they cannot exceed the cloud's launch rate.
+            cloud.getRateLimiter().submit(() -> {
+                warmUp(cloud, template);
+                return null;
+            });
+        }
+    }
+
+    private void warmUp(MultipassCloud cloud, MultipassAgentTemplate template) {
+        var instanceName = cloud.createInstanceName();
+        var specHash = template.getSpecHash();
+        warmingInstances.add(instanceName);
+        var host = cloud.reserveHost(instanceName, template);
+        if (host.isEmpty()) {
+            LOGGER.info("[multipass-cloud] Hosts have no capacity left to pre-launch a '{}' instance", template.getName());
+            synchronized (this) {
+                warmingByTemplate.merge(template.getName(), -1, Integer::sum);
+                warmingInstances.remove(instanceName);
+            }
+            return;
+        }
+        // Pre-launches count against the same bound on concurrent VM creations as agent launches.
+        var launchSlots = cloud.getLaunchSemaphore();
+        boolean holdsLaunchSlot = false;
+        try {
+            launchSlots.acquire();
+            holdsLaunchSlot = true;
+            LOGGER.info(
+                    "[multipass-cloud] Pre-launching instance '{}' for template '{}'",
+                    instanceName,
+                    template.getName());
+            cloud.launchInstance(instanceName, template);
+
+            // Only pool VMs an agent can connect to right away.
+            new MultipassReadinessProbe(cloud.getLaunchTimeoutSeconds())
+                    .awaitReady(host.get().getMultipassClient(), instanceName, template.getLaunchMode());
+
+            synchronized (this) {
+                idleByTemplate
+                        .computeIfAbsent(template.getName(), k -> new LinkedList<>())
+                        .addLast(new Entry(instanceName, specHash));
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.warn("[multipass-cloud] Failed to pre-launch instance '{}'", instanceName, e);
+            cloud.getTerminationQueue().enqueue(instanceName);
+        } finally {
+            if (holdsLaunchSlot) {
+                launchSlots.release();
+            }
+            synchronized (this) {
+                warmingByTemplate.merge(template.getName(), -1, Integer::sum);
+                warmingInstances.remove(instanceName);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.hainenber.jenkins.multipass;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.slaves.Cloud;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+
+/**
+ * Periodically refills and trims the warm pools, and trims the parked pools, of every {@link MultipassCloud}.
+ */
+@Extension
+@SuppressWarnings("unused")
+public class MultipassWarmPoolMaintainer extends AsyncPeriodicWork {
+    public MultipassWarmPoolMaintainer() {
+        super("Multipass warm pool maintainer");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TimeUnit.MINUTES.toMillis(1);
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        for (Cloud cloud : Jenkins.get().clouds) {
+            if (cloud instanceof MultipassCloud multipassCloud) {
+                multipassCloud.getWarmPool().maintain(multipassCloud);
+                multipassCloud.getParkedPool().maintain(multipassCloud);
+            }
+        }
+    }
+}
@@ -1,14 +1,34 @@
 package io.hainenber.jenkins.multipass.sdk;
 
+import com.fasterxml.jackson.annotation.JsonEnumDefaultValue;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public enum InstanceState {
     @JsonProperty("Running")
     RUNNING,
 
+    @JsonProperty("Starting")
+    STARTING,
+
+    @JsonProperty("Restarting")
+    RESTARTING,
+
+    @JsonProperty("Delayed Shutdown")
+    DELAYED_SHUTDOWN,
+
+    @JsonProperty("Suspending")
+    SUSPENDING,
+
+    @JsonProperty("Suspended")
+    SUSPENDED,
+
     @JsonProperty("Stopped")
     STOPPED,
 
     @JsonProperty("Deleted")
     DELETED,
+
+    @JsonEnumDefaultValue
+    @JsonProperty("Unknown")
+    UNKNOWN,
 }
@@ -0,0 +1,451 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.exec.CommandLine;
+
+/**
+ * {@link MultipassTransport} forking the <code>multipass</code> CLI and decoding its JSON output.
+ */
+public class MultipassCliTransport implements MultipassTransport {
+    /**
+     * Time after which a query or a short-lived command is killed, overridable with a system property.
+     */
+    public static final long DEFAULT_COMMAND_TIMEOUT_SECONDS =
+            Long.getLong(MultipassCliTransport.class.getName() + ".commandTimeoutSeconds", 120L);
+
+    /**
+     * Time after which a command creating or booting an instance is killed, overridable with a system property.
+     */
+    public static final long DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS =
+            Long.getLong(MultipassCliTransport.class.getName() + ".longCommandTimeoutSeconds", 1_800L);
+
+    /**
+     * Maximum number of <code>multipass</code> processes run at once, overridable with a system property.
+     */
+    public static final int DEFAULT_MAX_PARALLEL_COMMANDS =
+            Integer.getInteger(MultipassCliTransport.class.getName() + ".maxParallelCommands", 16);
+
+    /**
+     * Environment variable through which the <code>multipass</code> CLI is pointed at a daemon.
+     */
+    public static final String SERVER_ADDRESS_VARIABLE = "MULTIPASS_SERVER_ADDRESS";
+
+    private static final MultipassOutputDecoder<Void> DISCARD_OUTPUT = stdout -> null;
+    private static final int MAX_ERROR_OUTPUT_BYTES = 4_096;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "multipass-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_USING_DEFAULT_VALUE);
+    private final ObjectReader instanceReader = objectMapper.readerFor(MultipassInstance.class);
+    private final ObjectReader imageReader = objectMapper.readerFor(MultipassImage.class);
+
+    private final Semaphore commandPermits;
+    private final String serverAddress;
+    // Process currently run by each thread, so that aborted calls can kill it.
+    private final Map<Thread, Process> runningProcesses = new ConcurrentHashMap<>();
+
+    public MultipassCliTransport() {
+        this(DEFAULT_MAX_PARALLEL_COMMANDS);
+    }
+
+    /**
+     * Constructor for MultipassCliTransport, talking to the local daemon.
+     * @param maxParallelCommands maximum number of <code>multipass</code> processes run at once.
+     */
+    public MultipassCliTransport(int maxParallelCommands) {
+        this(null, maxParallelCommands);
+    }
+
+    /**
+     * Constructor for MultipassCliTransport.
+     * @param serverAddress address of the daemon, e.g. <code>host:50051</code> or
+     *                      <code>unix:/path/to/socket</code>, null or blank for the local daemon.
+     * @param maxParallelCommands maximum number of <code>multipass</code> processes run at once.
+     */
+    public MultipassCliTransport(String serverAddress, int maxParallelCommands) {
+        this.serverAddress = serverAddress == null || serverAddress.isBlank() ? null : serverAddress.trim();
+        this.commandPermits = new Semaphore(Math.max(maxParallelCommands, 1), true);
+    }
+
+    /**
+     * Address of the daemon this transport talks to.
+     * @return the address, or null for the local daemon.
+     */
+    public String getServerAddress() {
+        return serverAddress;
+    }
+
+    public String getOutput(CommandLine cmd) throws IOException {
+        return getOutput(cmd, stdout -> new String(stdout.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Run given command and decode its standard output as it is produced, without buffering it first.
+     * @param cmd the command to run.
+     * @param decoder a {@link MultipassOutputDecoder} object.
+     * @return the decoded output.
+     * @throws IOException if the command fails, times out or its output cannot be decoded.
+     */
+    public <T> T getOutput(CommandLine cmd, MultipassOutputDecoder<T> decoder) throws IOException {
+        return execute(cmd, decoder, DEFAULT_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    private ProcessBuilder newProcessBuilder(CommandLine cmd) {
+        var processBuilder = new ProcessBuilder(cmd.toStrings());
+        if (serverAddress != null) {
+            processBuilder.environment().put(SERVER_ADDRESS_VARIABLE, serverAddress);
+        }
+        return processBuilder;
+    }
+
+    /**
+     * Run given command in its own process, killing it if it is still running after given timeout.
+     * At most <code>maxParallelCommands</code> processes run at once, other callers wait for their turn.
+     * @param cmd the command to run.
+     * @param decoder a {@link MultipassOutputDecoder} object.
+     * @param timeoutSeconds time after which the process is killed.
+     * @return the decoded output.
+     * @throws MultipassCommandException if the command exits with an error.
+     * @throws IOException if the command cannot be run or its output cannot be decoded.
+     * @throws InterruptedIOException if the command timed out or the call was interrupted.
+     */
+    private <T> T execute(CommandLine cmd, MultipassOutputDecoder<T> decoder, long timeoutSeconds)
+            throws IOException {
+        try {
+            commandPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to run " + cmd.getExecutable());
+        }
+
+        var thread = Thread.currentThread();
+        Path errorOutput = null;
+        Process process = null;
+        ScheduledFuture<?> watchdog = null;
+        try {
+            // Kept in a file rather than a pipe, so that stderr needs no reader thread of its own.
+            errorOutput = Files.createTempFile("multipass-stderr", ".log");
+            process = newProcessBuilder(cmd)
+                    .redirectError(errorOutput.toFile())
+                    .start();
+            runningProcesses.put(thread, process);
+
+            var timedOut = new AtomicBoolean();
+            var watchedProcess = process;
+            watchdog = WATCHDOG.schedule(
+                    () -> {
+                        timedOut.set(true);
+                        watchedProcess.destroyForcibly();
+                    },
+                    timeoutSeconds,
+                    TimeUnit.SECONDS);
+
+            T result = null;
+            IOException decodeFailure = null;
+            try (InputStream stdout = process.getInputStream()) {
+                result = decoder.decode(stdout);
+                // Drain what the decoder did not need so the process never blocks on a full pipe.
+                stdout.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                decodeFailure = e;
+            }
+
+            int exitValue = waitFor(process);
+            if (timedOut.get()) {
+                throw new InterruptedIOException(
+                        String.format("'%s' timed out after %ds", String.join(" ", cmd.toStrings()), timeoutSeconds));
+            }
+            if (exitValue != 0) {
+                // A failed command usually prints nothing on stdout, report the failure rather than the parse error.
+                throw new MultipassCommandException(exitValue, readErrorOutput(errorOutput), decodeFailure);
+            }
+            if (decodeFailure != null) {
+                throw decodeFailure;
+            }
+            return result;
+        } finally {
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+            runningProcesses.remove(thread);
+            commandPermits.release();
+            if (errorOutput != null) {
+                Files.deleteIfExists(errorOutput);
+            }
+        }
+    }
+
+    private static String readErrorOutput(Path errorOutput) throws IOException {
+        byte[] bytes = Files.readAllBytes(errorOutput);
+        int from = Math.max(bytes.length - MAX_ERROR_OUTPUT_BYTES, 0);
+        return new String(bytes, from, bytes.length - from, StandardCharsets.UTF_8).trim();
+    }
+
+    private void execute(CommandLine cmd, long timeoutSeconds) throws IOException {
+        execute(cmd, DISCARD_OUTPUT, timeoutSeconds);
+    }
+
+    private static int waitFor(Process process) throws IOException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for multipass to exit");
+        }
+    }
+
+    /**
+     * Position the parser on the value of given top-level field, skipping every other field unread.
+     */
+    private static void seekTopLevelField(JsonParser parser, String fieldName) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object from multipass");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var currentName = parser.currentName();
+            parser.nextToken();
+            if (fieldName.equals(currentName)) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new JsonParseException(parser, String.format("Missing '%s' field in multipass output", fieldName));
+    }
+
+    List<String> decodeDistributionAliases(InputStream stdout) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(stdout)) {
+            seekTopLevelField(parser, "images");
+            List<String> aliases = new ArrayList<>();
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected 'images' to be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                parser.nextToken();
+                MultipassImage image = imageReader.readValue(parser);
+                if (image.aliases != null && !image.aliases.isEmpty()) {
+                    aliases.add(image.aliases.get(0));
+                }
+            }
+            return aliases;
+        }
+    }
+
+    List<MultipassInstance> decodeInstances(InputStream stdout) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(stdout)) {
+            seekTopLevelField(parser, "list");
+            List<MultipassInstance> instances = new ArrayList<>();
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected 'list' to be a JSON array");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                instances.add(instanceReader.readValue(parser));
+            }
+            return instances;
+        }
+    }
+
+    @Override
+    public List<MultipassInstance> list() throws IOException {
+        CommandLine getCmd = CommandLine.parse("multipass list");
+        getCmd.addArguments(new String[] {"--format", "json"});
+
+        return getOutput(getCmd, this::decodeInstances);
+    }
+
+    @Override
+    public List<String> findImageAliases() throws IOException {
+        CommandLine cmd = CommandLine.parse("multipass find");
+        cmd.addArguments(new String[] {"--format", "json"});
+        cmd.addArgument("--only-images");
+
+        return getOutput(cmd, this::decodeDistributionAliases);
+    }
+
+    @Override
+    public Optional<MultipassInstance> info(String name) throws IOException {
+        CommandLine infoCmd = CommandLine.parse("multipass info");
+        infoCmd.addArgument(name);
+        infoCmd.addArguments(new String[] {"--format", "json"});
+
+        JsonNode instanceInfo;
+        try {
+            instanceInfo = getOutput(infoCmd, objectMapper::readTree);
+        } catch (MultipassCommandException e) {
+            // Only an unknown instance means it is gone, other failures may be transient daemon errors.
+            if (e.isUnknownInstance()) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+
+        if (instanceInfo == null) {
+            return Optional.empty();
+        }
+        JsonNode info = instanceInfo.path("info").path(name);
+        if (info.isMissingNode()) {
+            return Optional.empty();
+        }
+
+        List<String> ipv4 = new ArrayList<>();
+        info.path("ipv4").forEach(ip -> ipv4.add(ip.asText()));
+
+        return Optional.of(new MultipassInstance(
+                name,
+                objectMapper.convertValue(info.path("state").asText(), InstanceState.class),
+                info.path("snapshot_count").asInt(0),
+                ipv4,
+                info.path("release").asText(null),
+                info.path("image_hash").asText(null),
+                info.path("cpu_count").asInt(0)));
+    }
+
+    @Override
+    public void launch(String name, String cloudInitConfig, Integer cpus, String memory, String disk, String image)
+            throws IOException {
+        // Save cloud-init config to temporary file
+        Path cloudInitConfigPath = Files.createTempFile("cloud-init-config", ".yaml");
+        Files.writeString(cloudInitConfigPath, cloudInitConfig, StandardCharsets.UTF_8);
+
+        // Add Multipass arguments
+        CommandLine createCmd = CommandLine.parse("multipass launch");
+        createCmd.addArguments(new String[] {"--name", name});
+        createCmd.addArguments(new String[] {"--cpus", cpus.toString()});
+        createCmd.addArguments(new String[] {"--memory", memory});
+        createCmd.addArguments(new String[] {"--disk", disk});
+        createCmd.addArguments(new String[] {
+            "--cloud-init", cloudInitConfigPath.toAbsolutePath().toString()
+        });
+        createCmd.addArgument(image);
+
+        try {
+            execute(createCmd, DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+        } finally {
+            Files.deleteIfExists(cloudInitConfigPath);
+        }
+    }
+
+    @Override
+    public void cloneInstance(String sourceName, String name) throws IOException {
+        CommandLine cloneCmd = CommandLine.parse("multipass clone");
+        cloneCmd.addArgument(sourceName);
+        cloneCmd.addArguments(new String[] {"--name", name});
+        execute(cloneCmd, DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void start(String name) throws IOException {
+        CommandLine startCmd = CommandLine.parse("multipass start");
+        startCmd.addArgument(name);
+        execute(startCmd, DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void stop(String name) throws IOException {
+        CommandLine stopCmd = CommandLine.parse("multipass stop");
+        stopCmd.addArgument(name);
+        execute(stopCmd, DEFAULT_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void suspend(String name) throws IOException {
+        CommandLine suspendCmd = CommandLine.parse("multipass suspend");
+        suspendCmd.addArgument(name);
+        execute(suspendCmd, DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void exec(String name, List<String> command) throws IOException {
+        exec(name, command, TimeUnit.SECONDS.toMillis(DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS));
+    }
+
+    @Override
+    public void exec(String name, List<String> command, long timeoutMillis) throws IOException {
+        CommandLine execCmd = CommandLine.parse("multipass exec");
+        execCmd.addArgument(name);
+        execCmd.addArgument("--");
+        execCmd.addArguments(command.toArray(String[]::new), false);
+        execute(execCmd, Math.max((timeoutMillis + 999) / 1000, 1));
+    }
+
+    /**
+     * Start <code>multipass exec</code> without a timeout or a command permit, as it lasts as long as the caller needs.
+     */
+    @Override
+    public Process spawn(String name, List<String> command) throws IOException {
+        CommandLine execCmd = CommandLine.parse("multipass exec");
+        execCmd.addArgument(name);
+        execCmd.addArgument("--");
+        execCmd.addArguments(command.toArray(String[]::new), false);
+        return newProcessBuilder(execCmd).start();
+    }
+
+    @Override
+    public void transfer(String name, byte[] content, String remotePath) throws IOException {
+        Path localPath = Files.createTempFile("multipass-transfer", ".tmp");
+        try {
+            Files.write(localPath, content);
+            CommandLine transferCmd = CommandLine.parse("multipass transfer");
+            transferCmd.addArgument(localPath.toAbsolutePath().toString(), false);
+            transferCmd.addArgument(name + ":" + remotePath, false);
+            execute(transferCmd, DEFAULT_COMMAND_TIMEOUT_SECONDS);
+        } finally {
+            Files.deleteIfExists(localPath);
+        }
+    }
+
+    /**
+     * Delete several instances with a single <code>multipass delete</code>, followed by one purge.
+     */
+    @Override
+    public void delete(Collection<String> names) throws IOException {
+        if (names.isEmpty()) {
+            return;
+        }
+        CommandLine deleteCmd = CommandLine.parse("multipass delete");
+        deleteCmd.addArguments(names.toArray(String[]::new));
+        execute(deleteCmd, DEFAULT_COMMAND_TIMEOUT_SECONDS);
+        execute(CommandLine.parse("multipass purge"), DEFAULT_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void abort(Thread caller) {
+        var process = runningProcesses.get(caller);
+        if (process != null) {
+            process.destroyForcibly();
+        }
+    }
+}
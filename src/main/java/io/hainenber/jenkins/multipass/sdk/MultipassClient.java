@@ -1,103 +1,434 @@
 package io.hainenber.jenkins.multipass.sdk;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InterruptedIOException;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.DefaultExecutor;
-import org.apache.commons.exec.PumpStreamHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Client of the Multipass daemon, caching its inventory and exposing blocking and asynchronous
+ * variants of its operations. The daemon is reached through a {@link MultipassTransport}.
+ */
 public class MultipassClient {
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final DefaultExecutor executor = DefaultExecutor.builder().get();
+    /**
+     * Default time-to-live of the instance inventory, overridable with a system property.
+     */
+    public static final long DEFAULT_INVENTORY_TTL_MILLIS =
+            Long.getLong(MultipassClient.class.getName() + ".inventoryTtlMillis", 5_000L);
 
-    private transient List<String> availableDistroAliases;
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
 
-    public String getOutput(CommandLine cmd) throws IOException {
-        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
-        PumpStreamHandler pumpStreamHandler = new PumpStreamHandler(stdout);
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "multipass-client-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final List<String> CLOUD_INIT_WAIT = List.of("cloud-init", "status", "--wait");
+
+    private final MultipassTransport transport;
 
-        executor.setStreamHandler(pumpStreamHandler);
-        executor.execute(cmd);
+    private volatile List<String> availableDistroAliases;
 
-        return stdout.toString();
+    private final long inventoryTtlNanos;
+    private final Object inventoryLock = new Object();
+    private volatile MultipassInventory inventory;
+    // Guarded by inventoryLock.
+    private CompletableFuture<MultipassInventory> inventoryRefresh;
+    // Guarded by inventoryLock.
+    private long inventoryGeneration;
+
+    public MultipassClient() {
+        this(DEFAULT_INVENTORY_TTL_MILLIS);
     }
 
-    public List<String> getDistributionAlias() throws IOException {
-        if (availableDistroAliases != null) {
-            return availableDistroAliases;
+    /**
+     * Constructor for MultipassClient, forking the <code>multipass</code> CLI.
+     * @param inventoryTtlMillis how long a <code>multipass list</code> snapshot is served from cache.
+     */
+    public MultipassClient(long inventoryTtlMillis) {
+        this(new MultipassCliTransport(), inventoryTtlMillis);
+    }
+
+    /**
+     * Constructor for MultipassClient.
+     * @param transport a {@link MultipassTransport} object.
+     * @param inventoryTtlMillis how long an instance list snapshot is served from cache.
+     */
+    public MultipassClient(MultipassTransport transport, long inventoryTtlMillis) {
+        this.transport = transport;
+        this.inventoryTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(inventoryTtlMillis, 0));
+    }
+
+    public MultipassTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * A blocking client call, run asynchronously by {@link #supplyAsync(Call)}.
+     */
+    @FunctionalInterface
+    private interface Call<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Asynchronous client call. Cancelling its future aborts the transport call it is running.
+     */
+    private final class AsyncCall<T> implements Runnable {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Call<T> call;
+        // Guarded by this.
+        private Thread worker;
+
+        AsyncCall(Call<T> call) {
+            this.call = call;
+            future.whenComplete((result, e) -> {
+                if (future.isCancelled()) {
+                    cancel();
+                }
+            });
         }
 
-        CommandLine cmd = CommandLine.parse("multipass find");
-        cmd.addArguments(new String[] {"--format", "json"});
-        cmd.addArgument("--only-images");
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;
+                }
+                worker = Thread.currentThread();
+            }
+            try {
+                future.complete(call.call());
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    // Do not leak a late cancellation into the next task of this pooled thread.
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        private synchronized void cancel() {
+            if (worker == null) {
+                return;
+            }
+            transport.abort(worker);
+            worker.interrupt();
+        }
+    }
 
-        var rawDistroAliases = getOutput(cmd);
+    private <T> CompletableFuture<T> supplyAsync(Call<T> call) {
+        var asyncCall = new AsyncCall<>(call);
+        ASYNC_EXECUTOR.execute(asyncCall);
+        return asyncCall.future;
+    }
 
-        Map<String, MultipassImage> images = objectMapper.readValue(
-                objectMapper.readTree(rawDistroAliases).get("images").toString(), new TypeReference<>() {});
-        availableDistroAliases = images.values().stream()
-                .map(i -> i.aliases.isEmpty() ? null : i.aliases.get(0))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    public List<String> getDistributionAlias() throws IOException {
+        if (availableDistroAliases != null) {
+            return availableDistroAliases;
+        }
+        availableDistroAliases = transport.findImageAliases();
         return availableDistroAliases;
     }
 
     public List<MultipassInstance> getInstances() throws IOException {
-        CommandLine getCmd = CommandLine.parse("multipass list");
-        getCmd.addArguments(new String[] {"--format", "json"});
+        return transport.list();
+    }
 
-        var instanceListString = getOutput(getCmd);
+    /**
+     * Get a name-indexed snapshot of all instances. Snapshots are reused until their TTL expires
+     * and concurrent callers share a single in-flight <code>multipass list</code> call.
+     * @return a {@link MultipassInventory} object.
+     * @throws IOException if the refresh failed.
+     */
+    public MultipassInventory getInventory() throws IOException {
+        var current = inventory;
+        if (current != null && !current.isExpired(inventoryTtlNanos)) {
+            return current;
+        }
 
-        // Extract and deserialize the 'list' property
-        return objectMapper.readValue(
-                objectMapper.readTree(instanceListString).get("list").toString(), new TypeReference<>() {});
-    }
+        CompletableFuture<MultipassInventory> refresh;
+        long generation;
+        boolean isRefreshOwner = false;
+        synchronized (inventoryLock) {
+            current = inventory;
+            if (current != null && !current.isExpired(inventoryTtlNanos)) {
+                return current;
+            }
+            if (inventoryRefresh == null) {
+                inventoryRefresh = new CompletableFuture<>();
+                isRefreshOwner = true;
+            }
+            refresh = inventoryRefresh;
+            generation = inventoryGeneration;
+        }
 
-    public Optional<MultipassInstance> getInstance(String name) throws IOException {
-        for (MultipassInstance instance : getInstances()) {
-            if (instance.getName().equals(name)) {
-                return Optional.of(instance);
+        if (isRefreshOwner) {
+            try {
+                var snapshot = new MultipassInventory(getInstances(), System.nanoTime());
+                synchronized (inventoryLock) {
+                    // Do not cache a snapshot that was started before an invalidation.
+                    if (generation == inventoryGeneration) {
+                        inventory = snapshot;
+                    }
+                    inventoryRefresh = null;
+                }
+                refresh.complete(snapshot);
+            } catch (IOException | RuntimeException e) {
+                synchronized (inventoryLock) {
+                    inventoryRefresh = null;
+                }
+                refresh.completeExceptionally(e);
+                throw e;
             }
         }
-        return Optional.empty();
+
+        try {
+            return refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Multipass inventory refresh");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to refresh Multipass inventory", e.getCause());
+        }
+    }
+
+    /**
+     * Drop the cached inventory so the next lookup observes the latest daemon state.
+     */
+    public void invalidateInventory() {
+        synchronized (inventoryLock) {
+            inventory = null;
+            inventoryGeneration++;
+        }
+    }
+
+    public Optional<MultipassInstance> getInstance(String name) throws IOException {
+        return getInventory().getInstance(name);
+    }
+
+    /**
+     * Look up a single instance, bypassing the inventory cache.
+     * Suitable for polling a specific instance, e.g. waiting for its IP address.
+     * @param name the instance name.
+     * @return the instance, or empty if Multipass does not know about it.
+     * @throws IOException if the daemon answer cannot be decoded.
+     */
+    public Optional<MultipassInstance> getInstanceInfo(String name) throws IOException {
+        return transport.info(name);
     }
 
     public void createInstance(
             String name, String cloudInitConfig, Integer cpus, String memory, String disk, String distroAlias)
             throws IOException {
-        // Save cloud-init config to temporary file
-        Path cloudInitConfigPath = Files.createTempFile("cloud-init-config", ".yaml");
-        Files.writeString(cloudInitConfigPath, cloudInitConfig, StandardCharsets.UTF_8);
-
-        // Add Multipass arguments
-        CommandLine createCmd = CommandLine.parse("multipass launch");
-        createCmd.addArguments(new String[] {"--name", name});
-        createCmd.addArguments(new String[] {"--cpus", cpus.toString()});
-        createCmd.addArguments(new String[] {"--memory", memory});
-        createCmd.addArguments(new String[] {"--disk", disk});
-        createCmd.addArguments(new String[] {
-            "--cloud-init", cloudInitConfigPath.toAbsolutePath().toString()
-        });
-        createCmd.addArgument(distroAlias);
+        try {
+            transport.launch(name, cloudInitConfig, cpus, memory, disk, distroAlias);
+        } finally {
+            invalidateInventory();
+        }
+    }
+
+    /**
+     * Create a new instance as a copy of a stopped one.
+     * @param sourceName name of the stopped instance to clone.
+     * @param name name of the new instance.
+     * @throws IOException if Multipass fails to clone the instance.
+     */
+    public void cloneInstance(String sourceName, String name) throws IOException {
+        try {
+            transport.cloneInstance(sourceName, name);
+        } finally {
+            invalidateInventory();
+        }
+    }
+
+    public void startInstance(String instanceName) throws IOException {
+        try {
+            transport.start(instanceName);
+        } finally {
+            invalidateInventory();
+        }
+    }
+
+    public void stopInstance(String instanceName) throws IOException {
+        try {
+            transport.stop(instanceName);
+        } finally {
+            invalidateInventory();
+        }
+    }
+
+    /**
+     * Suspend given instance, to be resumed later with {@link #startInstance(String)}.
+     * @param instanceName the instance name.
+     * @throws IOException if the instance cannot be suspended.
+     */
+    public void suspendInstance(String instanceName) throws IOException {
+        try {
+            transport.suspend(instanceName);
+        } finally {
+            invalidateInventory();
+        }
+    }
+
+    /**
+     * Block until cloud-init has finished configuring given instance.
+     * @param instanceName the instance name.
+     * @throws IOException if cloud-init reports a failure.
+     */
+    public void waitForCloudInit(String instanceName) throws IOException {
+        transport.exec(instanceName, CLOUD_INIT_WAIT);
+    }
+
+    /**
+     * Block until cloud-init has finished configuring given instance, for at most given time.
+     * @param instanceName the instance name.
+     * @param timeoutMillis time after which waiting is abandoned.
+     * @throws IOException if cloud-init reports a failure or does not finish in time.
+     */
+    public void waitForCloudInit(String instanceName, long timeoutMillis) throws IOException {
+        transport.exec(instanceName, CLOUD_INIT_WAIT, timeoutMillis);
+    }
+
+    /**
+     * Run a command inside given instance and wait for it to complete.
+     * @param instanceName the instance name.
+     * @param command the command and its arguments.
+     * @throws IOException if the command cannot be run or exits with an error.
+     */
+    public void exec(String instanceName, List<String> command) throws IOException {
+        transport.exec(instanceName, command);
+    }
+
+    /**
+     * Start a long-lived command inside given instance, see {@link MultipassTransport#spawn(String, List)}.
+     * @param instanceName the instance name.
+     * @param command the command and its arguments.
+     * @return a {@link Process} relaying the command's standard streams.
+     * @throws IOException if the command cannot be started.
+     */
+    public Process spawn(String instanceName, List<String> command) throws IOException {
+        return transport.spawn(instanceName, command);
+    }
 
-        executor.execute(createCmd);
+    /**
+     * Copy content to a file inside given instance.
+     * @param instanceName the instance name.
+     * @param content the file content.
+     * @param remotePath absolute path of the file inside the instance.
+     * @throws IOException if the content cannot be transferred.
+     */
+    public void transfer(String instanceName, byte[] content, String remotePath) throws IOException {
+        transport.transfer(instanceName, content, remotePath);
+    }
+
+    /**
+     * Delete and purge several instances at once.
+     * @param instanceNames names of the instances to delete.
+     * @throws IOException if Multipass fails to delete or purge.
+     */
+    public void deleteInstances(Collection<String> instanceNames) throws IOException {
+        if (instanceNames.isEmpty()) {
+            return;
+        }
+        try {
+            transport.delete(instanceNames);
+        } finally {
+            invalidateInventory();
+        }
     }
 
     public void terminateInstance(String instanceName) throws IOException {
-        CommandLine deleteCmd = CommandLine.parse("multipass delete");
-        deleteCmd.addArgument(instanceName);
-        CommandLine purgeCmd = CommandLine.parse("multipass purge");
-        executor.execute(deleteCmd);
-        executor.execute(purgeCmd);
+        deleteInstances(List.of(instanceName));
+    }
+
+    /**
+     * Asynchronous variant of {@link #getInstances()}.
+     * @return a future list of instances.
+     */
+    public CompletableFuture<List<MultipassInstance>> getInstancesAsync() {
+        return supplyAsync(this::getInstances);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getInstanceInfo(String)}.
+     * @param name the instance name.
+     * @return a future instance, empty if Multipass does not know about it.
+     */
+    public CompletableFuture<Optional<MultipassInstance>> getInstanceInfoAsync(String name) {
+        return supplyAsync(() -> getInstanceInfo(name));
+    }
+
+    /**
+     * Asynchronous variant of {@link #createInstance(String, String, Integer, String, String, String)}.
+     * @return a future completed once the instance is launched.
+     */
+    public CompletableFuture<Void> createInstanceAsync(
+            String name, String cloudInitConfig, Integer cpus, String memory, String disk, String distroAlias) {
+        return supplyAsync(() -> {
+            createInstance(name, cloudInitConfig, cpus, memory, disk, distroAlias);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #cloneInstance(String, String)}.
+     * @return a future completed once the instance is cloned.
+     */
+    public CompletableFuture<Void> cloneInstanceAsync(String sourceName, String name) {
+        return supplyAsync(() -> {
+            cloneInstance(sourceName, name);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #startInstance(String)}.
+     * @return a future completed once the instance is started.
+     */
+    public CompletableFuture<Void> startInstanceAsync(String instanceName) {
+        return supplyAsync(() -> {
+            startInstance(instanceName);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #stopInstance(String)}.
+     * @return a future completed once the instance is stopped.
+     */
+    public CompletableFuture<Void> stopInstanceAsync(String instanceName) {
+        return supplyAsync(() -> {
+            stopInstance(instanceName);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #deleteInstances(Collection)}.
+     * @return a future completed once the instances are deleted and purged.
+     */
+    public CompletableFuture<Void> deleteInstancesAsync(Collection<String> instanceNames) {
+        return supplyAsync(() -> {
+            deleteInstances(instanceNames);
+            return null;
+        });
     }
 }
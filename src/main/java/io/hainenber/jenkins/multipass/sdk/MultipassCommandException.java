@@ -0,0 +1,38 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import java.io.Serial;
+import org.apache.commons.exec.ExecuteException;
+
+/**
+ * A <code>multipass</code> command that exited with an error, along with what it printed on standard error.
+ */
+public class MultipassCommandException extends ExecuteException {
+    @Serial
+    private static final long serialVersionUID = 3961417583530912640L;
+
+    private final String errorOutput;
+
+    public MultipassCommandException(int exitValue, String errorOutput, Throwable cause) {
+        super(
+                "Process exited with an error: " + exitValue + (errorOutput.isEmpty() ? "" : " (" + errorOutput + ")"),
+                exitValue,
+                cause);
+        this.errorOutput = errorOutput;
+    }
+
+    /**
+     * Standard error of the command, trimmed to its end if it was long.
+     * @return a {@link String} object, empty if the command printed nothing.
+     */
+    public String getErrorOutput() {
+        return errorOutput;
+    }
+
+    /**
+     * Check whether the command failed because it targeted an instance the daemon does not know.
+     * @return true for unknown instances.
+     */
+    public boolean isUnknownInstance() {
+        return errorOutput.contains("does not exist");
+    }
+}
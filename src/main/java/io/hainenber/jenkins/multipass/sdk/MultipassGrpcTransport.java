@@ -0,0 +1,450 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import io.grpc.ChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.TlsChannelCredentials;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.hainenber.jenkins.multipass.sdk.rpc.CloneRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.DeleteRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.DetailedInfoItem;
+import io.hainenber.jenkins.multipass.sdk.rpc.FindReply;
+import io.hainenber.jenkins.multipass.sdk.rpc.FindRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.InfoRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstanceNames;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstanceSnapshotPair;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstanceStatus;
+import io.hainenber.jenkins.multipass.sdk.rpc.LaunchRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.ListReply;
+import io.hainenber.jenkins.multipass.sdk.rpc.ListRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.ListVMInstance;
+import io.hainenber.jenkins.multipass.sdk.rpc.RpcGrpc;
+import io.hainenber.jenkins.multipass.sdk.rpc.StartRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.StopRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.SuspendRequest;
+import jakarta.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * {@link MultipassTransport} calling the gRPC API of multipassd directly, so that queries and
+ * lifecycle operations are in-process calls rather than one <code>multipass</code> process each.
+ * Commands run inside instances go through SSH rather than the daemon's API, so {@link #exec},
+ * {@link #spawn} and {@link #transfer} are left to a delegate transport, usually the CLI one.
+ */
+public class MultipassGrpcTransport implements MultipassTransport, Closeable {
+    /**
+     * Socket of the local daemon installed from the snap.
+     */
+    public static final String DEFAULT_LOCAL_ADDRESS = "unix:/var/snap/multipass/common/multipass_socket";
+
+    /**
+     * Port multipassd listens on when it accepts remote clients.
+     */
+    public static final int DEFAULT_PORT = 50051;
+
+    // Name the daemon's self-signed certificate is issued for, whatever address it is reached at.
+    private static final String DAEMON_AUTHORITY = "localhost";
+
+    private final ManagedChannel channel;
+    private final RpcGrpc.RpcStub stub;
+    private final MultipassTransport delegate;
+    @Nullable
+    private final EventLoopGroup eventLoopGroup;
+    // Call currently made by each thread, so that aborted calls can be cancelled.
+    private final Map<Thread, ClientCallStreamObserver<?>> runningCalls = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for MultipassGrpcTransport, over an already configured channel.
+     * @param channel a {@link ManagedChannel} to multipassd, closed with this transport.
+     * @param delegate transport running commands inside instances.
+     */
+    public MultipassGrpcTransport(ManagedChannel channel, MultipassTransport delegate) {
+        this(channel, delegate, null);
+    }
+
+    private MultipassGrpcTransport(
+            ManagedChannel channel, MultipassTransport delegate, @Nullable EventLoopGroup eventLoopGroup) {
+        this.channel = channel;
+        this.stub = RpcGrpc.newStub(channel);
+        this.delegate = delegate;
+        this.eventLoopGroup = eventLoopGroup;
+    }
+
+    /**
+     * Connect to multipassd, authenticating with a client certificate the daemon trusts.
+     * @param serverAddress address of the daemon, e.g. <code>host:50051</code> or
+     *                      <code>unix:/path/to/socket</code>, null or blank for the local daemon.
+     * @param certificates a {@link Certificates} object.
+     * @param delegate transport running commands inside instances.
+     * @return a {@link MultipassGrpcTransport}
+     * @throws IOException if the certificates cannot be read, or the daemon is behind a unix socket
+     *                     and the native transport needed for it is unavailable on this platform.
+     */
+    public static MultipassGrpcTransport connect(
+            @Nullable String serverAddress, Certificates certificates, MultipassTransport delegate)
+            throws IOException {
+        var address = serverAddress == null || serverAddress.isBlank() ? DEFAULT_LOCAL_ADDRESS : serverAddress.trim();
+        ChannelCredentials credentials = TlsChannelCredentials.newBuilder()
+                .keyManager(
+                        certificates.clientCertificate().toFile(),
+                        certificates.clientKey().toFile())
+                .trustManager(certificates.daemonCertificate().toFile())
+                .build();
+
+        if (address.startsWith("unix:")) {
+            if (!Epoll.isAvailable()) {
+                throw new IOException("Unix sockets need Netty's native epoll transport", Epoll.unavailabilityCause());
+            }
+            var socketPath = address.substring("unix:".length()).replaceFirst("^//", "");
+            var eventLoopGroup = new EpollEventLoopGroup(1);
+            var channel = NettyChannelBuilder.forAddress(new DomainSocketAddress(socketPath), credentials)
+                    .eventLoopGroup(eventLoopGroup)
+                    .channelType(EpollDomainSocketChannel.class)
+                    .overrideAuthority(DAEMON_AUTHORITY)
+                    .build();
+            return new MultipassGrpcTransport(channel, delegate, eventLoopGroup);
+        }
+        var channel = NettyChannelBuilder.forAddress(toSocketAddress(address), credentials)
+                .overrideAuthority(DAEMON_AUTHORITY)
+                .build();
+        return new MultipassGrpcTransport(channel, delegate);
+    }
+
+    private static SocketAddress toSocketAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0 || address.endsWith("]")) {
+            return new InetSocketAddress(address.replaceAll("^\\[|]$", ""), DEFAULT_PORT);
+        }
+        var host = address.substring(0, separator).replaceAll("^\\[|]$", "");
+        return new InetSocketAddress(host, Integer.parseInt(address.substring(separator + 1)));
+    }
+
+    @Override
+    public List<MultipassInstance> list() throws IOException {
+        var replies = call(
+                RpcGrpc.RpcStub::list,
+                ListRequest.newBuilder().setRequestIpv4(true).build(),
+                MultipassCliTransport.DEFAULT_COMMAND_TIMEOUT_SECONDS);
+        List<MultipassInstance> instances = new ArrayList<>();
+        for (ListReply reply : replies) {
+            for (ListVMInstance instance : reply.getInstanceList().getInstancesList()) {
+                instances.add(new MultipassInstance(
+                        instance.getName(),
+                        toInstanceState(instance.getInstanceStatus()),
+                        0,
+                        new ArrayList<>(instance.getIpv4List()),
+                        instance.getCurrentRelease(),
+                        null,
+                        0));
+            }
+        }
+        return instances;
+    }
+
+    @Override
+    public Optional<MultipassInstance> info(String name) throws IOException {
+        var request = InfoRequest.newBuilder()
+                .addInstanceSnapshotPairs(
+                        InstanceSnapshotPair.newBuilder().setInstanceName(name).build())
+                .build();
+        List<DetailedInfoItem> details = new ArrayList<>();
+        try {
+            call(RpcGrpc.RpcStub::info, request, MultipassCliTransport.DEFAULT_COMMAND_TIMEOUT_SECONDS)
+                    .forEach(reply -> details.addAll(reply.getDetailsList()));
+        } catch (IOException e) {
+            // Only an unknown instance means it is gone, other failures may be transient daemon errors.
+            if (isUnknownInstance(e)) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+
+        return details.stream()
+                .filter(item -> name.equals(item.getName()))
+                .findFirst()
+                .map(item -> new MultipassInstance(
+                        item.getName(),
+                        toInstanceState(item.getInstanceStatus()),
+                        item.getInstanceInfo().getNumSnapshots(),
+                        new ArrayList<>(item.getInstanceInfo().getIpv4List()),
+                        item.getInstanceInfo().getCurrentRelease(),
+                        item.getInstanceInfo().getId().isEmpty()
+                                ? null
+                                : item.getInstanceInfo().getId(),
+                        parseCpuCount(item.getCpuCount())));
+    }
+
+    @Override
+    public List<String> findImageAliases() throws IOException {
+        var replies = call(
+                RpcGrpc.RpcStub::find,
+                FindRequest.newBuilder().setShowImages(true).build(),
+                MultipassCliTransport.DEFAULT_COMMAND_TIMEOUT_SECONDS);
+        List<String> aliases = new ArrayList<>();
+        for (FindReply reply : replies) {
+            for (FindReply.ImageInfo image : reply.getImagesInfoList()) {
+                if (image.getAliasesInfoCount() > 0) {
+                    aliases.add(image.getAliasesInfo(0).getAlias());
+                }
+            }
+        }
+        return aliases;
+    }
+
+    @Override
+    public void launch(String name, String cloudInitConfig, Integer cpus, String memory, String disk, String image)
+            throws IOException {
+        var request = LaunchRequest.newBuilder()
+                .setInstanceName(name)
+                .setNumCores(cpus)
+                .setMemSize(memory)
+                .setDiskSpace(disk)
+                .setCloudInitUserData(cloudInitConfig);
+        // Same "remote:alias" syntax as the CLI, e.g. "daily:noble".
+        int remoteSeparator = image.indexOf(':');
+        if (remoteSeparator > 0) {
+            request.setRemoteName(image.substring(0, remoteSeparator)).setImage(image.substring(remoteSeparator + 1));
+        } else {
+            request.setImage(image);
+        }
+        call(RpcGrpc.RpcStub::launch, request.build(), MultipassCliTransport.DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void cloneInstance(String sourceName, String name) throws IOException {
+        var request = CloneRequest.newBuilder()
+                .setSourceName(sourceName)
+                .setDestinationName(name)
+                .build();
+        call(RpcGrpc.RpcStub::clone, request, MultipassCliTransport.DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void start(String name) throws IOException {
+        var request =
+                StartRequest.newBuilder().setInstanceNames(toInstanceNames(name)).build();
+        call(RpcGrpc.RpcStub::start, request, MultipassCliTransport.DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void stop(String name) throws IOException {
+        var request =
+                StopRequest.newBuilder().setInstanceNames(toInstanceNames(name)).build();
+        call(RpcGrpc.RpcStub::stop, request, MultipassCliTransport.DEFAULT_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void suspend(String name) throws IOException {
+        var request = SuspendRequest.newBuilder()
+                .setInstanceNames(toInstanceNames(name))
+                .build();
+        call(RpcGrpc.RpcStub::suspend, request, MultipassCliTransport.DEFAULT_LONG_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void exec(String name, List<String> command) throws IOException {
+        delegate.exec(name, command);
+    }
+
+    @Override
+    public void exec(String name, List<String> command, long timeoutMillis) throws IOException {
+        delegate.exec(name, command, timeoutMillis);
+    }
+
+    @Override
+    public Process spawn(String name, List<String> command) throws IOException {
+        return delegate.spawn(name, command);
+    }
+
+    @Override
+    public void transfer(String name, byte[] content, String remotePath) throws IOException {
+        delegate.transfer(name, content, remotePath);
+    }
+
+    /**
+     * Delete and purge several instances with a single call.
+     */
+    @Override
+    public void delete(Collection<String> names) throws IOException {
+        if (names.isEmpty()) {
+            return;
+        }
+        var request = DeleteRequest.newBuilder().setPurge(true);
+        names.forEach(name -> request.addInstanceSnapshotPairs(
+                InstanceSnapshotPair.newBuilder().setInstanceName(name).build()));
+        call(RpcGrpc.RpcStub::delet, request.build(), MultipassCliTransport.DEFAULT_COMMAND_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    public void abort(Thread caller) {
+        var call = runningCalls.get(caller);
+        if (call != null) {
+            call.cancel("Aborted by caller", null);
+        }
+        delegate.abort(caller);
+    }
+
+    @Override
+    public void close() {
+        channel.shutdownNow();
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+
+    /**
+     * Send one request on a call of the daemon and wait for all of its replies.
+     * The daemon's calls are bidirectional streams, so that it can prompt the client,
+     * but none of the requests sent here lead to a prompt.
+     * @param method the stub method starting the call.
+     * @param request the request.
+     * @param timeoutSeconds time after which the call is cancelled.
+     * @return the replies, in order.
+     * @throws IOException if the call fails.
+     * @throws InterruptedIOException if the call timed out or was interrupted.
+     */
+    private <Q, R> List<R> call(
+            BiFunction<RpcGrpc.RpcStub, StreamObserver<R>, StreamObserver<Q>> method, Q request, long timeoutSeconds)
+            throws IOException {
+        List<R> replies = new ArrayList<>();
+        var completion = new CompletableFuture<List<R>>();
+        var requests = (ClientCallStreamObserver<Q>)
+                method.apply(stub.withDeadlineAfter(timeoutSeconds, TimeUnit.SECONDS), new StreamObserver<>() {
+                    @Override
+                    public void onNext(R reply) {
+                        replies.add(reply);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        completion.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completion.complete(replies);
+                    }
+                });
+
+        var thread = Thread.currentThread();
+        runningCalls.put(thread, requests);
+        try {
+            requests.onNext(request);
+            requests.onCompleted();
+            return completion.get();
+        } catch (InterruptedException e) {
+            requests.cancel("Interrupted", e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for multipassd");
+        } catch (ExecutionException e) {
+            throw toIOException(e.getCause());
+        } finally {
+            runningCalls.remove(thread);
+        }
+    }
+
+    private static IOException toIOException(Throwable failure) {
+        if (!(failure instanceof StatusRuntimeException statusException)) {
+            return new IOException("Call to multipassd failed", failure);
+        }
+        var status = statusException.getStatus();
+        if (status.getCode() == Status.Code.DEADLINE_EXCEEDED || status.getCode() == Status.Code.CANCELLED) {
+            var exception = new InterruptedIOException("Call to multipassd did not complete: " + status);
+            exception.initCause(failure);
+            return exception;
+        }
+        return new IOException("multipassd failed with " + status.getCode() + ": " + status.getDescription(), failure);
+    }
+
+    private static boolean isUnknownInstance(IOException e) {
+        if (!(e.getCause() instanceof StatusRuntimeException statusException)) {
+            return false;
+        }
+        var status = statusException.getStatus();
+        return status.getCode() == Status.Code.NOT_FOUND
+                || (status.getDescription() != null && status.getDescription().contains("does not exist"));
+    }
+
+    private static InstanceNames toInstanceNames(String name) {
+        return InstanceNames.newBuilder().addInstanceName(name).build();
+    }
+
+    private static int parseCpuCount(String cpuCount) {
+        try {
+            return Integer.parseInt(cpuCount);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static InstanceState toInstanceState(InstanceStatus status) {
+        return switch (status.getStatus()) {
+            case RUNNING -> InstanceState.RUNNING;
+            case STARTING -> InstanceState.STARTING;
+            case RESTARTING -> InstanceState.RESTARTING;
+            case STOPPED -> InstanceState.STOPPED;
+            case DELETED -> InstanceState.DELETED;
+            case DELAYED_SHUTDOWN -> InstanceState.DELAYED_SHUTDOWN;
+            case SUSPENDING -> InstanceState.SUSPENDING;
+            case SUSPENDED -> InstanceState.SUSPENDED;
+            default -> InstanceState.UNKNOWN;
+        };
+    }
+
+    /**
+     * Files with which the transport authenticates to multipassd and checks the daemon's identity.
+     * @param clientCertificate PEM certificate the daemon trusts, registered with <code>multipass authenticate</code>
+     *                          or created by a local installation.
+     * @param clientKey PEM private key of the client certificate.
+     * @param daemonCertificate PEM certificate of the daemon.
+     */
+    public record Certificates(Path clientCertificate, Path clientKey, Path daemonCertificate) {
+        /**
+         * Certificates of a local snap installation, each overridable with a system property.
+         * @return a {@link Certificates} object.
+         */
+        public static Certificates defaults() {
+            var clientDirectory = Path.of(
+                    System.getProperty("user.home"),
+                    "snap",
+                    "multipass",
+                    "current",
+                    "data",
+                    "multipass-client-certificate");
+            return new Certificates(
+                    getPath("clientCertificate", clientDirectory.resolve("multipass_cert.pem")),
+                    getPath("clientKey", clientDirectory.resolve("multipass_cert_key.pem")),
+                    getPath(
+                            "daemonCertificate",
+                            Path.of("/var/snap/multipass/common/data/multipassd/certificates/localhost.pem")));
+        }
+
+        private static Path getPath(String property, Path defaultPath) {
+            var value = System.getProperty(MultipassGrpcTransport.class.getName() + "." + property);
+            return value == null || value.isBlank() ? defaultPath : Path.of(value);
+        }
+    }
+}
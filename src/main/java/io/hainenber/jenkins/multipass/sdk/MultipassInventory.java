@@ -0,0 +1,47 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, name-indexed snapshot of the instances known to a Multipass daemon
+ * at the time of a single <code>multipass list</code> call.
+ */
+public class MultipassInventory {
+    private final Map<String, MultipassInstance> instancesByName;
+    private final long takenAtNanos;
+
+    public MultipassInventory(List<MultipassInstance> instances, long takenAtNanos) {
+        var index = new LinkedHashMap<String, MultipassInstance>();
+        for (MultipassInstance instance : instances) {
+            index.put(instance.getName(), instance);
+        }
+        this.instancesByName = Collections.unmodifiableMap(index);
+        this.takenAtNanos = takenAtNanos;
+    }
+
+    public Optional<MultipassInstance> getInstance(String name) {
+        return Optional.ofNullable(instancesByName.get(name));
+    }
+
+    public Collection<MultipassInstance> getInstances() {
+        return instancesByName.values();
+    }
+
+    public boolean contains(String name) {
+        return instancesByName.containsKey(name);
+    }
+
+    /**
+     * Check whether the snapshot is older than given time-to-live.
+     * @param ttlNanos time-to-live in nanoseconds.
+     * @return true if the snapshot should be refreshed.
+     */
+    public boolean isExpired(long ttlNanos) {
+        return System.nanoTime() - takenAtNanos >= ttlNanos;
+    }
+}
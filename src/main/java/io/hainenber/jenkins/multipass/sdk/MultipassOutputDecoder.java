@@ -0,0 +1,19 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the standard output of a <code>multipass</code> command while it is being read.
+ * @param <T> type of the decoded value.
+ */
+@FunctionalInterface
+public interface MultipassOutputDecoder<T> {
+    /**
+     * Decode the command output. Unread output is discarded by the caller.
+     * @param stdout the command's standard output.
+     * @return the decoded value.
+     * @throws IOException if the output cannot be read or decoded.
+     */
+    T decode(InputStream stdout) throws IOException;
+}
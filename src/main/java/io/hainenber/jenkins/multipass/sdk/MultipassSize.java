@@ -0,0 +1,43 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for the memory and disk sizes accepted by <code>multipass launch</code>,
+ * e.g. <code>512M</code>, <code>1.5G</code>, <code>10GiB</code> or a plain number of bytes.
+ */
+public final class MultipassSize {
+    private static final Pattern SIZE_PATTERN = Pattern.compile("^(\\d+(?:\\.\\d+)?)\\s*([KMGT])?(?:I?B)?$");
+
+    private MultipassSize() {}
+
+    /**
+     * Parse a Multipass size string. Units are binary, as in Multipass itself.
+     * @param size a size string.
+     * @return the size in bytes.
+     * @throws IllegalArgumentException if the size cannot be parsed.
+     */
+    public static long parseBytes(String size) {
+        if (size == null) {
+            throw new IllegalArgumentException("Size must not be null");
+        }
+        var matcher = SIZE_PATTERN.matcher(size.trim().toUpperCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid Multipass size: " + size);
+        }
+
+        int exponent =
+                switch (matcher.group(2) == null ? "" : matcher.group(2)) {
+                    case "K" -> 1;
+                    case "M" -> 2;
+                    case "G" -> 3;
+                    case "T" -> 4;
+                    default -> 0;
+                };
+        return new BigDecimal(matcher.group(1))
+                .multiply(BigDecimal.valueOf(1024L).pow(exponent))
+                .longValue();
+    }
+}
@@ -0,0 +1,118 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Channel through which a {@link MultipassClient} talks to the Multipass daemon.
+ * Implementations are stateless with regard to caching, which is left to the client,
+ * and must be safe for concurrent use.
+ */
+public interface MultipassTransport {
+    /**
+     * List all instances known to the daemon.
+     * @return a list of {@link MultipassInstance}.
+     * @throws IOException if the daemon cannot be reached or its answer cannot be decoded.
+     */
+    List<MultipassInstance> list() throws IOException;
+
+    /**
+     * Get detailed information about one instance.
+     * @param name the instance name.
+     * @return the instance, or empty if the daemon does not know about it.
+     * @throws IOException if the daemon cannot be reached, fails for another reason than an unknown
+     *                     instance, or its answer cannot be decoded.
+     */
+    Optional<MultipassInstance> info(String name) throws IOException;
+
+    /**
+     * List the primary alias of every image the daemon can launch.
+     * @return a list of image aliases.
+     * @throws IOException if the daemon cannot be reached or its answer cannot be decoded.
+     */
+    List<String> findImageAliases() throws IOException;
+
+    /**
+     * Launch a new instance.
+     * @param name the instance name.
+     * @param cloudInitConfig content of the cloud-init user data.
+     * @param cpus number of CPUs.
+     * @param memory memory size, e.g. <code>2G</code>.
+     * @param disk disk size, e.g. <code>10G</code>.
+     * @param image image alias to launch.
+     * @throws IOException if the instance cannot be launched.
+     */
+    void launch(String name, String cloudInitConfig, Integer cpus, String memory, String disk, String image)
+            throws IOException;
+
+    /**
+     * Create a new instance as a copy of a stopped one.
+     * @param sourceName name of the stopped instance.
+     * @param name name of the new instance.
+     * @throws IOException if the instance cannot be cloned.
+     */
+    void cloneInstance(String sourceName, String name) throws IOException;
+
+    void start(String name) throws IOException;
+
+    void stop(String name) throws IOException;
+
+    /**
+     * Suspend a running instance, saving its memory to disk. Suspended instances are resumed with {@link #start}.
+     * @param name the instance name.
+     * @throws IOException if the instance cannot be suspended.
+     */
+    void suspend(String name) throws IOException;
+
+    /**
+     * Run a command inside an instance and wait for it to complete.
+     * @param name the instance name.
+     * @param command the command and its arguments.
+     * @throws IOException if the command cannot be run or exits with an error.
+     */
+    void exec(String name, List<String> command) throws IOException;
+
+    /**
+     * Run a command inside an instance and wait at most given time for it to complete.
+     * @param name the instance name.
+     * @param command the command and its arguments.
+     * @param timeoutMillis time after which the command is abandoned.
+     * @throws IOException if the command cannot be run, exits with an error or times out.
+     */
+    void exec(String name, List<String> command, long timeoutMillis) throws IOException;
+
+    /**
+     * Start a long-lived command inside an instance, connected to the returned process' standard streams.
+     * The caller owns the process and must destroy it once done.
+     * @param name the instance name.
+     * @param command the command and its arguments.
+     * @return a {@link Process} relaying the command's standard input, output and error.
+     * @throws IOException if the command cannot be started.
+     */
+    Process spawn(String name, List<String> command) throws IOException;
+
+    /**
+     * Copy content to a file inside an instance, as the instance's default user.
+     * @param name the instance name.
+     * @param content the file content.
+     * @param remotePath absolute path of the file inside the instance.
+     * @throws IOException if the content cannot be transferred.
+     */
+    void transfer(String name, byte[] content, String remotePath) throws IOException;
+
+    /**
+     * Delete and purge instances.
+     * @param names names of the instances to delete.
+     * @throws IOException if the instances cannot be deleted.
+     */
+    void delete(Collection<String> names) throws IOException;
+
+    /**
+     * Abort the call currently run by given thread, if any. Used to cancel asynchronous calls
+     * blocked in a way that thread interruption alone cannot end.
+     * @param caller the thread running the call.
+     */
+    default void abort(Thread caller) {}
+}
@@ -0,0 +1,59 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.hainenber.jenkins.multipass.MultipassAgentRegistry.State;
+import org.junit.jupiter.api.Test;
+
+class MultipassAgentRegistryTest {
+    @Test
+    public void givenAgentsMovingThroughLifecycle_whenCounting_thenReflectCurrentStates() {
+        var registry = new MultipassAgentRegistry();
+        registry.register("cloud-a1b2", "java", State.PLANNED);
+        registry.register("cloud-c3d4", "java", State.PLANNED);
+        registry.register("cloud-e5f6", "node", State.PLANNED);
+
+        registry.transition("cloud-a1b2", State.LAUNCHING);
+        registry.transition("cloud-c3d4", State.LAUNCHING);
+        registry.transition("cloud-c3d4", State.ONLINE);
+
+        assertEquals(2, registry.getProvisioningCount());
+        assertEquals(1, registry.getProvisioningCount("java"));
+        assertEquals(2, registry.getActiveCount("java"));
+        assertEquals(1, registry.getCount(State.ONLINE));
+
+        registry.transition("cloud-c3d4", State.TERMINATING);
+        assertEquals(1, registry.getActiveCount("java"));
+
+        registry.remove("cloud-c3d4");
+        registry.remove("cloud-e5f6");
+        assertEquals(0, registry.getCount(State.TERMINATING));
+        assertEquals(1, registry.getActiveCount());
+        assertTrue(registry.getState("cloud-e5f6").isEmpty());
+    }
+
+    @Test
+    public void givenUnknownAgent_whenTransition_thenIgnore() {
+        var registry = new MultipassAgentRegistry();
+        registry.transition("unknown", State.ONLINE);
+
+        assertEquals(0, registry.getCount(State.ONLINE));
+        assertTrue(registry.getState("unknown").isEmpty());
+    }
+
+    @Test
+    public void givenStartedLaunch_whenAgentLeavesLaunching_thenForgetLaunchStart() {
+        var registry = new MultipassAgentRegistry();
+        registry.register("cloud-a1b2", "java", State.PLANNED);
+        registry.markLaunchStarted("cloud-a1b2", 1L);
+        assertTrue(registry.getLaunchStartNanos("cloud-a1b2").isEmpty());
+
+        registry.transition("cloud-a1b2", State.LAUNCHING);
+        registry.markLaunchStarted("cloud-a1b2", 2L);
+        assertEquals(2L, registry.getLaunchStartNanos("cloud-a1b2").getAsLong());
+
+        registry.transition("cloud-a1b2", State.ONLINE);
+        assertTrue(registry.getLaunchStartNanos("cloud-a1b2").isEmpty());
+    }
+}
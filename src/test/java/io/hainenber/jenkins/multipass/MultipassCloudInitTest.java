@@ -0,0 +1,34 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class MultipassCloudInitTest {
+    @Test
+    public void givenNoRunCommands_whenAddingOne_thenAppendRunCmdList() {
+        var cloudInit = "#cloud-config\npackages:\n  - git\n";
+
+        assertEquals(
+                "#cloud-config\npackages:\n  - git\nruncmd:\n  - \"echo \\\"hi\\\"\"\n",
+                MultipassCloudInit.withRunCommand(cloudInit, "echo \"hi\""));
+    }
+
+    @Test
+    public void givenRunCommands_whenAddingOne_thenRunItLastWithSameIndentation() {
+        var cloudInit = "#cloud-config\nruncmd:\n    - apt-get install -y openjdk-21-jre\n    # trailing comment\n"
+                + "packages:\n  - git\n";
+
+        assertEquals(
+                "#cloud-config\nruncmd:\n    - apt-get install -y openjdk-21-jre\n    - \"start-agent\"\n"
+                        + "    # trailing comment\npackages:\n  - git\n",
+                MultipassCloudInit.withRunCommand(cloudInit, "start-agent"));
+    }
+
+    @Test
+    public void givenFlowStyleRunCommands_whenAddingOne_thenAppendToFlowList() {
+        assertEquals(
+                "#cloud-config\nruncmd: [ls, \"start-agent\"]",
+                MultipassCloudInit.withRunCommand("#cloud-config\nruncmd: [ls]", "start-agent"));
+    }
+}
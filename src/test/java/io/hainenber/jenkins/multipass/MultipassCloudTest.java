@@ -0,0 +1,27 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MultipassCloudTest {
+    @Test
+    void testReconfiguredCloudTakesOverRuntimeState() {
+        var cloud = new MultipassCloud("reconfigured", List.of());
+        var warmPool = cloud.getWarmPool();
+        var parkedPool = cloud.getParkedPool();
+        var launchSemaphore = cloud.getLaunchSemaphore();
+        var rateLimiter = cloud.getRateLimiter();
+
+        // Saving the configuration builds a new instance with the same name.
+        var reconfigured = new MultipassCloud("reconfigured", List.of());
+
+        assertSame(warmPool, reconfigured.getWarmPool());
+        assertSame(parkedPool, reconfigured.getParkedPool());
+        assertSame(launchSemaphore, reconfigured.getLaunchSemaphore());
+        assertSame(rateLimiter, reconfigured.getRateLimiter());
+        assertNotSame(warmPool, new MultipassCloud("other", List.of()).getWarmPool());
+    }
+}
@@ -0,0 +1,35 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.hainenber.jenkins.multipass.sdk.MultipassGrpcTransport;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+class MultipassEndpointTest {
+    @Test
+    void testRemoteEndpointWithoutDaemonCertificateHasNoGrpcCertificates() {
+        assertTrue(new MultipassEndpoint("build-host-2:50051").getGrpcCertificates().isEmpty());
+    }
+
+    @Test
+    void testRemoteEndpointUsesItsDaemonCertificate() {
+        var endpoint = new MultipassEndpoint("build-host-2:50051");
+        endpoint.setDaemonCertificate(" /etc/multipass/build-host-2.pem ");
+
+        var certificates = endpoint.getGrpcCertificates().orElseThrow();
+
+        var defaults = MultipassGrpcTransport.Certificates.defaults();
+        assertEquals(Path.of("/etc/multipass/build-host-2.pem"), certificates.daemonCertificate());
+        assertEquals(defaults.clientCertificate(), certificates.clientCertificate());
+        assertEquals(defaults.clientKey(), certificates.clientKey());
+    }
+
+    @Test
+    void testLocalEndpointUsesSnapCertificates() {
+        assertEquals(
+                MultipassGrpcTransport.Certificates.defaults(),
+                MultipassEndpoint.local().getGrpcCertificates().orElseThrow());
+    }
+}
@@ -0,0 +1,53 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.hainenber.jenkins.multipass.sdk.InstanceState;
+import io.hainenber.jenkins.multipass.sdk.MultipassInstance;
+import io.hainenber.jenkins.multipass.sdk.MultipassInventory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MultipassOrphanReconcilerTest {
+    private static MultipassInstance instance(String name) {
+        var instance = new MultipassInstance();
+        instance.setName(name);
+        instance.setState(InstanceState.RUNNING);
+        return instance;
+    }
+
+    @Test
+    public void givenInventory_whenFindingOrphans_thenOnlyKeepUnownedAgentInstancesOfTheCloud() {
+        var cloud = new MultipassCloud("ci", List.of());
+        var inventory = new MultipassInventory(
+                List.of(
+                        instance("ci-a1b2"),
+                        instance("ci-c3d4"),
+                        instance("ci-golden-java-0123456789ab"),
+                        instance("ci-arm-e5f6"),
+                        instance("primary")),
+                System.nanoTime());
+        var owned = Set.of("ci-c3d4");
+
+        assertEquals(List.of("ci-a1b2"), MultipassOrphanReconciler.findOrphans(cloud, inventory, owned::contains));
+    }
+
+    @Test
+    public void givenLaunchQueuedForALaunchSlot_whenFindingStuckLaunches_thenOnlyReportLaunchesStartedTooLongAgo() {
+        var registry = new MultipassAgentRegistry();
+        registry.register("ci-queued", "java", MultipassAgentRegistry.State.LAUNCHING);
+        registry.register("ci-recent", "java", MultipassAgentRegistry.State.LAUNCHING);
+        registry.register("ci-stuck", "java", MultipassAgentRegistry.State.LAUNCHING);
+        long launchTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+        long nowNanos = System.nanoTime();
+        registry.markLaunchStarted("ci-recent", nowNanos - launchTimeoutNanos / 2);
+        registry.markLaunchStarted("ci-stuck", nowNanos - launchTimeoutNanos);
+
+        // The queued launch has been launching the longest, but never got a launch slot.
+        assertEquals(
+                List.of("ci-stuck"),
+                MultipassOrphanReconciler.findStuckLaunches(registry, launchTimeoutNanos, nowNanos));
+    }
+}
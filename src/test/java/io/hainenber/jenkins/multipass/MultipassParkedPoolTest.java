@@ -0,0 +1,81 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.hainenber.jenkins.multipass.sdk.MultipassSize;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class MultipassParkedPoolTest {
+    private final MultipassAgentTemplate template =
+            new MultipassAgentTemplate("ssh", "", "10G", "2G", 1, "noble", "linux", "java");
+    private final MultipassHostCapacity.Resources resources = MultipassHostCapacity.of(template);
+
+    @Test
+    void testTrimEvictsOldestFirst() {
+        var pool = new MultipassParkedPool();
+        pool.add("ci-aaaa", "java", template.getSpecHash(), resources);
+        pool.add("ci-bbbb", "java", template.getSpecHash(), resources);
+        pool.add("ci-cccc", "java", template.getSpecHash(), resources);
+
+        // Memory allows two VMs, disk allows all three.
+        var evicted = pool.trim(MultipassSize.parseBytes("4G"), MultipassSize.parseBytes("100G"));
+
+        assertEquals(List.of("ci-aaaa"), evicted);
+        assertFalse(pool.contains("ci-aaaa"));
+        assertTrue(pool.contains("ci-cccc"));
+        assertEquals(2, pool.getParkedCount(template));
+    }
+
+    @Test
+    void testTrimAppliesBothBudgets() {
+        var pool = new MultipassParkedPool();
+        pool.add("ci-aaaa", "java", template.getSpecHash(), resources);
+        pool.add("ci-bbbb", "java", template.getSpecHash(), resources);
+
+        var evicted = pool.trim(MultipassSize.parseBytes("8G"), MultipassSize.parseBytes("15G"));
+
+        assertEquals(List.of("ci-aaaa"), evicted);
+        assertTrue(pool.trim(MultipassSize.parseBytes("8G"), MultipassSize.parseBytes("15G")).isEmpty());
+    }
+
+    @Test
+    void testAcquireResumesMostRecentMatchingVm() {
+        var pool = new MultipassParkedPool();
+        pool.add("ci-aaaa", "java", template.getSpecHash(), resources);
+        pool.add("ci-bbbb", "java", "outdated", resources);
+        pool.add("ci-cccc", "java", template.getSpecHash(), resources);
+        pool.add("ci-dddd", "python", template.getSpecHash(), resources);
+
+        assertEquals(Optional.of("ci-cccc"), pool.acquire(template));
+        assertEquals(Optional.of("ci-aaaa"), pool.acquire(template));
+        assertEquals(Optional.empty(), pool.acquire(template));
+        assertTrue(pool.contains("ci-bbbb"));
+    }
+
+    @Test
+    void testOfferRefusesAgentRetiredAfterProblems() {
+        var cloud = new MultipassCloud("ci", List.of());
+        var parkableTemplate = new MultipassAgentTemplate("ssh", "", "10G", "2G", 1, "noble", "linux", "java");
+        parkableTemplate.setParkOnTerminate(true);
+        var pool = new MultipassParkedPool();
+
+        assertFalse(pool.offer(cloud, "ci-aaaa", parkableTemplate, "/home/jenkins", false));
+        assertFalse(pool.contains("ci-aaaa"));
+    }
+
+    @Test
+    void testOfferRefusesInstanceAlreadyParked() {
+        var cloud = new MultipassCloud("ci", List.of());
+        var parkableTemplate = new MultipassAgentTemplate("ssh", "", "10G", "2G", 1, "noble", "linux", "java");
+        parkableTemplate.setParkOnTerminate(true);
+        var pool = new MultipassParkedPool();
+        pool.add("ci-aaaa", parkableTemplate.getName(), parkableTemplate.getSpecHash(), resources);
+
+        assertFalse(pool.offer(cloud, "ci-aaaa", parkableTemplate, "/home/jenkins", true));
+        assertEquals(1, pool.getParkedCount(parkableTemplate));
+    }
+}
@@ -0,0 +1,91 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import io.hainenber.jenkins.multipass.sdk.MultipassClient;
+import io.hainenber.jenkins.multipass.sdk.MultipassSize;
+import io.hainenber.jenkins.multipass.sdk.MultipassTransport;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MultipassPlacementPolicyTest {
+    private final MultipassCloud cloud = new MultipassCloud("ci", List.of());
+    private final MultipassAgentTemplate template =
+            new MultipassAgentTemplate("ssh", "", "10G", "2G", 1, "noble", "linux", "java");
+
+    private static List<MultipassHost> fakeDaemons(int count) {
+        var hosts = new ArrayList<MultipassHost>();
+        for (int i = 0; i < count; i++) {
+            var endpoint = new MultipassEndpoint("daemon-" + i + ":50051");
+            var resources = new MultipassHostCapacity.Resources(
+                    4, MultipassSize.parseBytes("16G"), MultipassSize.parseBytes("100G"));
+            hosts.add(new MultipassHost(
+                    endpoint,
+                    new MultipassClient(mock(MultipassTransport.class), 0),
+                    new MultipassHostCapacity(resources)));
+        }
+        return hosts;
+    }
+
+    private List<String> place(MultipassPlacementPolicy policy, List<MultipassHost> hosts, int count) {
+        var placements = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            var host = policy.choose(cloud, template, hosts);
+            if (host.isEmpty()) {
+                placements.add(null);
+                continue;
+            }
+            assertTrue(host.get().getHostCapacity().tryReserve(cloud, "ci-vm" + i, template));
+            placements.add(host.get().getAddress());
+        }
+        return placements;
+    }
+
+    @Test
+    public void givenSeveralDaemons_whenLeastLoaded_thenSpreadVmsEvenly() {
+        var hosts = fakeDaemons(3);
+
+        var placements = place(MultipassPlacementPolicy.LEAST_LOADED, hosts, 6);
+
+        assertEquals(
+                List.of(
+                        "daemon-0:50051",
+                        "daemon-1:50051",
+                        "daemon-2:50051",
+                        "daemon-0:50051",
+                        "daemon-1:50051",
+                        "daemon-2:50051"),
+                placements);
+    }
+
+    @Test
+    public void givenSeveralDaemons_whenFirstFit_thenFillHostsInOrder() {
+        var hosts = fakeDaemons(2);
+
+        var placements = place(MultipassPlacementPolicy.FIRST_FIT, hosts, 9);
+
+        assertEquals(4, placements.stream().filter("daemon-0:50051"::equals).count());
+        assertEquals("daemon-1:50051", placements.get(4));
+        assertEquals(4, placements.stream().filter("daemon-1:50051"::equals).count());
+        assertNull(placements.get(8));
+    }
+
+    @Test
+    public void givenOneDaemonWithoutConfiguredResources_whenLeastLoaded_thenSpreadVmsByCount() {
+        var hosts = fakeDaemons(1);
+        hosts.add(new MultipassHost(
+                new MultipassEndpoint("unsized:50051"),
+                new MultipassClient(mock(MultipassTransport.class), 0),
+                new MultipassHostCapacity(
+                        new MultipassHostCapacity.Resources(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE))));
+
+        var placements = place(MultipassPlacementPolicy.LEAST_LOADED, hosts, 6);
+
+        assertEquals(3, placements.stream().filter("daemon-0:50051"::equals).count());
+        assertEquals(3, placements.stream().filter("unsized:50051"::equals).count());
+    }
+}
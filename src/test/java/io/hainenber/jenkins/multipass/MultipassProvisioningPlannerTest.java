@@ -0,0 +1,77 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.hainenber.jenkins.multipass.MultipassProvisioningPlanner.Candidate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MultipassProvisioningPlannerTest {
+    private static MultipassAgentTemplate template(String name, String memory, int weight) {
+        var template = new MultipassAgentTemplate("ssh", "", "10G", memory, 1, "noble", "linux", name);
+        template.setWeight(weight);
+        return template;
+    }
+
+    private final MultipassAgentTemplate large = template("large", "8G", 1);
+    private final MultipassAgentTemplate small = template("small", "2G", 3);
+
+    @Test
+    public void givenSeveralMatchingTemplates_whenPriorityOrder_thenSplitDemandOnce() {
+        var plan = MultipassProvisioningPlanner.plan(
+                MultipassProvisioningPolicy.PRIORITY_ORDER,
+                5,
+                Integer.MAX_VALUE,
+                List.of(new Candidate(large, 3), new Candidate(small, 10)));
+
+        assertEquals(Map.of(large, 3, small, 2), plan);
+    }
+
+    @Test
+    public void givenSeveralMatchingTemplates_whenSmallestFit_thenPreferSmallestTemplate() {
+        var plan = MultipassProvisioningPlanner.plan(
+                MultipassProvisioningPolicy.SMALLEST_FIT,
+                5,
+                Integer.MAX_VALUE,
+                List.of(new Candidate(large, 10), new Candidate(small, 10)));
+
+        assertEquals(Map.of(small, 5), plan);
+    }
+
+    @Test
+    public void givenSeveralMatchingTemplates_whenWeighted_thenSplitByWeight() {
+        var plan = MultipassProvisioningPlanner.plan(
+                MultipassProvisioningPolicy.WEIGHTED,
+                8,
+                Integer.MAX_VALUE,
+                List.of(new Candidate(large, 10), new Candidate(small, 10)));
+
+        assertEquals(Map.of(large, 2, small, 6), plan);
+    }
+
+    @Test
+    public void givenCloudCap_whenPlanning_thenNeverExceedIt() {
+        var plan = MultipassProvisioningPlanner.plan(
+                MultipassProvisioningPolicy.WEIGHTED,
+                8,
+                3,
+                List.of(new Candidate(large, 10), new Candidate(small, 0)));
+
+        assertEquals(Map.of(large, 3), plan);
+    }
+
+    @Test
+    public void givenTemplateWithSeveralExecutors_whenPlanning_thenPackBuildsOnFewerAgents() {
+        var packed = template("packed", "8G", 1);
+        packed.setNumExecutors(4);
+
+        var plan = MultipassProvisioningPlanner.plan(
+                MultipassProvisioningPolicy.PRIORITY_ORDER,
+                10,
+                Integer.MAX_VALUE,
+                List.of(new Candidate(packed, 10)));
+
+        assertEquals(Map.of(packed, 3), plan);
+    }
+}
@@ -0,0 +1,35 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MultipassRateLimiterTest {
+    @Test
+    public void givenBurstUsedUp_whenSubmitting_thenQueueInsteadOfDropping() {
+        var limiter = new MultipassRateLimiter(Runnable::run, 2, 1);
+
+        var first = limiter.submit(() -> "cloud-a1b2");
+        var second = limiter.submit(() -> "cloud-c3d4");
+        var third = limiter.submit(() -> "cloud-e5f6");
+
+        assertEquals("cloud-a1b2", first.join());
+        assertEquals("cloud-c3d4", second.join());
+        assertFalse(third.isDone());
+        assertEquals(1, limiter.getPendingCount());
+    }
+
+    @Test
+    public void givenFailingTask_whenReleased_thenCompleteFutureExceptionally() {
+        var limiter = new MultipassRateLimiter(Runnable::run, 1, 1);
+
+        var future = limiter.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, limiter.getPendingCount());
+    }
+}
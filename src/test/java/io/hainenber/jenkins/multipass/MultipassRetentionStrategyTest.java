@@ -0,0 +1,56 @@
+package io.hainenber.jenkins.multipass;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Executor;
+import hudson.model.Queue;
+import org.junit.jupiter.api.Test;
+
+class MultipassRetentionStrategyTest {
+    @Test
+    void testTaskCompletedWithProblemsMarksAgentAsNotReusable() {
+        var computer = mock(MultipassComputer.class);
+        var executor = mock(Executor.class);
+        when(executor.getOwner()).thenReturn(computer);
+
+        new MultipassRetentionStrategy(0, 10)
+                .taskCompletedWithProblems(executor, mock(Queue.Task.class), 1_000, new RuntimeException("failed"));
+
+        verify(computer).markRetiredAfterProblems();
+        verify(computer).setAcceptingTasks(false);
+    }
+
+    @Test
+    void testTaskCompletedKeepsAgentReusable() {
+        var computer = mock(MultipassComputer.class);
+        var executor = mock(Executor.class);
+        when(executor.getOwner()).thenReturn(computer);
+        when(computer.isAcceptingTasks()).thenReturn(true);
+
+        new MultipassRetentionStrategy(0, 10).taskCompleted(executor, mock(Queue.Task.class), 1_000);
+
+        verify(computer, never()).markRetiredAfterProblems();
+    }
+
+    @Test
+    void testRetiredAgentIsTerminatedOnlyOnce() throws Exception {
+        var computer = mock(MultipassComputer.class);
+        var agent = mock(MultipassAgent.class);
+        when(computer.isIdle()).thenReturn(true);
+        when(computer.getNode()).thenReturn(agent);
+        when(computer.markTerminating()).thenReturn(true, false);
+        var strategy = new MultipassRetentionStrategy(1, 10);
+
+        strategy.check(computer);
+        strategy.check(computer);
+
+        verify(agent, timeout(5_000)).terminate();
+        Thread.sleep(200);
+        verify(agent, times(1)).terminate();
+    }
+}
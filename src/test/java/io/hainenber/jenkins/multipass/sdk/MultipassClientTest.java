@@ -1,11 +1,21 @@
 package io.hainenber.jenkins.multipass.sdk;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
@@ -19,16 +29,22 @@ class MultipassClientTest {
         return Files.readString(Paths.get("src", "test", "resources", filename));
     }
 
+    private static MultipassCliTransport stubOutput(String output) throws IOException {
+        var spiedTransport = spy(new MultipassCliTransport());
+        doAnswer(invocation -> invocation
+                        .<MultipassOutputDecoder<?>>getArgument(1)
+                        .decode(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8))))
+                .when(spiedTransport)
+                .getOutput(any(CommandLine.class), any());
+        return spiedTransport;
+    }
+
     @Test
     public void givenInstanceWithAllStatesFromMultipassCLI_whenGetInstances_thenReturnListOfMultipassClient()
             throws IOException {
-        var multipassClient = new MultipassClient();
-        var spiedMultipassClient = spy(multipassClient);
-
-        // Load fixture into spied method
-        doReturn(getMultipassCliFixture("listOfInstances.json"))
-                .when(spiedMultipassClient)
-                .getOutput(any(CommandLine.class));
+        // Load fixture into spied transport
+        var spiedTransport = stubOutput(getMultipassCliFixture("listOfInstances.json"));
+        var multipassClient = new MultipassClient(spiedTransport, MultipassClient.DEFAULT_INVENTORY_TTL_MILLIS);
 
         var expected = List.of(
                 new MultipassInstance(
@@ -41,23 +57,108 @@ class MultipassClientTest {
                         "Ubuntu 24.04 LTS",
                         null,
                         0));
-        var actual = spiedMultipassClient.getInstances();
+        var actual = multipassClient.getInstances();
         assertIterableEquals(expected, actual);
     }
 
     @Test
     public void givenDistroAliasesFromMultipassCLI_whenGetDistroAliases_thenReturnListOfDistro() throws IOException {
-        var multipassClient = new MultipassClient();
-        var spiedMultipassClient = spy(multipassClient);
-
-        // Load fixture into spied method
-        doReturn(getMultipassCliFixture("listOfDistroAliases.json"))
-                .when(spiedMultipassClient)
-                .getOutput(any(CommandLine.class));
+        // Load fixture into spied transport
+        var spiedTransport = stubOutput(getMultipassCliFixture("listOfDistroAliases.json"));
+        var multipassClient = new MultipassClient(spiedTransport, MultipassClient.DEFAULT_INVENTORY_TTL_MILLIS);
 
         var expected = Stream.of("noble", "jammy", "focal").sorted().collect(Collectors.toList());
-        var actual =
-                spiedMultipassClient.getDistributionAlias().stream().sorted().collect(Collectors.toList());
+        var actual = multipassClient.getDistributionAlias().stream().sorted().collect(Collectors.toList());
         assertIterableEquals(expected, actual);
     }
+
+    @Test
+    public void givenCachedInventory_whenGetInstanceTwice_thenListInstancesOnlyOnce() throws IOException {
+        // Load fixture into spied transport
+        var spiedTransport = stubOutput(getMultipassCliFixture("listOfInstances.json"));
+        var multipassClient = new MultipassClient(spiedTransport, 60_000L);
+
+        assertTrue(multipassClient.getInstance("java-app-builder-1").isPresent());
+        assertTrue(multipassClient.getInstance("javascript-app-builder-1").isPresent());
+        verify(spiedTransport, times(1)).getOutput(any(CommandLine.class), any());
+
+        multipassClient.invalidateInventory();
+        assertTrue(multipassClient.getInstance("unknown-instance").isEmpty());
+        verify(spiedTransport, times(2)).getOutput(any(CommandLine.class), any());
+    }
+
+    @Test
+    public void givenInstanceInfoFromMultipassCLI_whenGetInstanceInfo_thenReturnMultipassInstance() throws IOException {
+        // Load fixture into spied transport
+        var spiedTransport = stubOutput(getMultipassCliFixture("instanceInfo.json"));
+        var multipassClient = new MultipassClient(spiedTransport, MultipassClient.DEFAULT_INVENTORY_TTL_MILLIS);
+
+        var expected = new MultipassInstance(
+                "javascript-app-builder-1",
+                InstanceState.RUNNING,
+                0,
+                List.of("192.168.73.3"),
+                "Ubuntu 24.04 LTS",
+                "b63f266fa4bdb1d0ee8a4d9ad1ecb17ff7ba1f3a1fe0ea1ea4d4e1bb5fe5e1b1",
+                1);
+        var actual = multipassClient.getInstanceInfo("javascript-app-builder-1");
+        assertTrue(actual.isPresent());
+        assertEquals(expected, actual.get());
+    }
+
+    private static MultipassCliTransport stubFailure(String errorOutput) throws IOException {
+        var spiedTransport = spy(new MultipassCliTransport());
+        doThrow(new MultipassCommandException(2, errorOutput, null))
+                .when(spiedTransport)
+                .getOutput(any(CommandLine.class), any());
+        return spiedTransport;
+    }
+
+    @Test
+    public void givenUnknownInstance_whenGetInstanceInfo_thenReturnEmpty() throws IOException {
+        var multipassClient = new MultipassClient(stubFailure("info failed: instance \"vm\" does not exist"), 0);
+
+        assertTrue(multipassClient.getInstanceInfo("vm").isEmpty());
+    }
+
+    @Test
+    public void givenDaemonError_whenGetInstanceInfo_thenThrow() throws IOException {
+        var multipassClient = new MultipassClient(stubFailure("cannot connect to the multipass socket"), 0);
+
+        assertThrows(MultipassCommandException.class, () -> multipassClient.getInstanceInfo("vm"));
+    }
+
+    @Test
+    public void givenUnrelatedFieldsBeforeList_whenGetInstances_thenSkipThem() throws IOException {
+        var multipassClient = new MultipassClient(
+                stubOutput(
+                        "{\"errors\": [{\"nested\": {\"list\": []}}], \"list\": [{\"name\": \"vm\", \"state\": \"Running\"}]}"),
+                0);
+
+        var actual = multipassClient.getInstances();
+        assertEquals(1, actual.size());
+        assertEquals("vm", actual.get(0).getName());
+    }
+
+    @Test
+    public void givenOutputWithoutList_whenGetInstances_thenThrow() throws IOException {
+        var multipassClient = new MultipassClient(stubOutput("{\"errors\": []}"), 0);
+
+        assertThrows(IOException.class, multipassClient::getInstances);
+    }
+
+    @Test
+    public void givenStubTransport_whenDeleteInstances_thenRefreshInventory() throws IOException {
+        var transport = mock(MultipassTransport.class);
+        var instance = new MultipassInstance("vm", InstanceState.RUNNING, 0, List.of(), "Ubuntu 24.04 LTS", null, 1);
+        when(transport.list()).thenReturn(List.of(instance)).thenReturn(List.of());
+        var multipassClient = new MultipassClient(transport, 60_000L);
+
+        assertTrue(multipassClient.getInstance("vm").isPresent());
+        multipassClient.deleteInstances(List.of("vm"));
+
+        verify(transport).delete(List.of("vm"));
+        assertTrue(multipassClient.getInstance("vm").isEmpty());
+        verify(transport, times(2)).list();
+    }
 }
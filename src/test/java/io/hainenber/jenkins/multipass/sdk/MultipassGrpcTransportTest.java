@@ -0,0 +1,216 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.hainenber.jenkins.multipass.sdk.rpc.DeleteReply;
+import io.hainenber.jenkins.multipass.sdk.rpc.DeleteRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.DetailedInfoItem;
+import io.hainenber.jenkins.multipass.sdk.rpc.InfoReply;
+import io.hainenber.jenkins.multipass.sdk.rpc.InfoRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstanceDetails;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstanceSnapshotPair;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstanceStatus;
+import io.hainenber.jenkins.multipass.sdk.rpc.InstancesList;
+import io.hainenber.jenkins.multipass.sdk.rpc.LaunchReply;
+import io.hainenber.jenkins.multipass.sdk.rpc.LaunchRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.ListReply;
+import io.hainenber.jenkins.multipass.sdk.rpc.ListRequest;
+import io.hainenber.jenkins.multipass.sdk.rpc.ListVMInstance;
+import io.hainenber.jenkins.multipass.sdk.rpc.RpcGrpc;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MultipassGrpcTransportTest {
+    private final StubDaemon daemon = new StubDaemon();
+    private final MultipassTransport delegate = mock(MultipassTransport.class);
+    private Server server;
+    private MultipassGrpcTransport transport;
+
+    /**
+     * Stand-in for multipassd, answering each call with the reply set by the test.
+     */
+    private static class StubDaemon extends RpcGrpc.RpcImplBase {
+        private final List<Object> requests = new ArrayList<>();
+        private Function<InfoRequest, InfoReply> info;
+
+        private <Q, R> StreamObserver<Q> answer(StreamObserver<R> replies, Function<Q, R> handler) {
+            return new StreamObserver<>() {
+                private final List<Q> received = new ArrayList<>();
+
+                @Override
+                public void onNext(Q request) {
+                    requests.add(request);
+                    received.add(request);
+                }
+
+                @Override
+                public void onError(Throwable t) {}
+
+                @Override
+                public void onCompleted() {
+                    try {
+                        replies.onNext(handler.apply(received.get(0)));
+                        replies.onCompleted();
+                    } catch (RuntimeException e) {
+                        replies.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public StreamObserver<ListRequest> list(StreamObserver<ListReply> replies) {
+            return answer(replies, request -> ListReply.newBuilder()
+                    .setInstanceList(InstancesList.newBuilder()
+                            .addInstances(ListVMInstance.newBuilder()
+                                    .setName("vm-1")
+                                    .setInstanceStatus(status(InstanceStatus.Status.RUNNING))
+                                    .addIpv4("10.0.0.2")
+                                    .setCurrentRelease("Ubuntu 24.04 LTS"))
+                            .addInstances(ListVMInstance.newBuilder()
+                                    .setName("vm-2")
+                                    .setInstanceStatus(status(InstanceStatus.Status.SUSPENDED))))
+                    .build());
+        }
+
+        @Override
+        public StreamObserver<InfoRequest> info(StreamObserver<InfoReply> replies) {
+            return answer(replies, info);
+        }
+
+        @Override
+        public StreamObserver<LaunchRequest> launch(StreamObserver<LaunchReply> replies) {
+            return answer(replies, request -> LaunchReply.newBuilder()
+                    .setVmInstanceName(request.getInstanceName())
+                    .build());
+        }
+
+        @Override
+        public StreamObserver<DeleteRequest> delet(StreamObserver<DeleteReply> replies) {
+            return answer(replies, request -> DeleteReply.getDefaultInstance());
+        }
+    }
+
+    private static InstanceStatus status(InstanceStatus.Status status) {
+        return InstanceStatus.newBuilder().setStatus(status).build();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var serverName = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(daemon)
+                .build()
+                .start();
+        ManagedChannel channel =
+                InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        transport = new MultipassGrpcTransport(channel, delegate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void givenStubDaemon_whenList_thenReturnInstancesWithTheirAddresses() throws IOException {
+        var expected = List.of(
+                new MultipassInstance(
+                        "vm-1", InstanceState.RUNNING, 0, List.of("10.0.0.2"), "Ubuntu 24.04 LTS", null, 0),
+                new MultipassInstance("vm-2", InstanceState.SUSPENDED, 0, List.of(), "", null, 0));
+
+        assertEquals(expected, transport.list());
+        assertTrue(((ListRequest) daemon.requests.get(0)).getRequestIpv4());
+    }
+
+    @Test
+    public void givenStubDaemon_whenInfo_thenReturnInstanceDetails() throws IOException {
+        daemon.info = request -> InfoReply.newBuilder()
+                .addDetails(DetailedInfoItem.newBuilder()
+                        .setName("vm-1")
+                        .setInstanceStatus(status(InstanceStatus.Status.STOPPED))
+                        .setCpuCount("2")
+                        .setInstanceInfo(InstanceDetails.newBuilder()
+                                .setCurrentRelease("Ubuntu 24.04 LTS")
+                                .setId("b63f266f")
+                                .setNumSnapshots(1)
+                                .addIpv4("10.0.0.2")))
+                .build();
+
+        var expected = new MultipassInstance(
+                "vm-1", InstanceState.STOPPED, 1, List.of("10.0.0.2"), "Ubuntu 24.04 LTS", "b63f266f", 2);
+        assertEquals(expected, transport.info("vm-1").orElseThrow());
+    }
+
+    @Test
+    public void givenUnknownInstance_whenInfo_thenReturnEmpty() throws IOException {
+        daemon.info = request -> {
+            throw Status.NOT_FOUND
+                    .withDescription("instance \"vm-1\" does not exist")
+                    .asRuntimeException();
+        };
+
+        assertTrue(transport.info("vm-1").isEmpty());
+    }
+
+    @Test
+    public void givenDaemonError_whenInfo_thenThrow() {
+        daemon.info = request -> {
+            throw Status.UNAVAILABLE.withDescription("daemon is busy").asRuntimeException();
+        };
+
+        assertThrows(IOException.class, () -> transport.info("vm-1"));
+    }
+
+    @Test
+    public void givenLaunchParameters_whenLaunch_thenSendThemInOneRequest() throws IOException {
+        transport.launch("vm-1", "#cloud-config", 2, "2G", "10G", "daily:noble");
+
+        var request = (LaunchRequest) daemon.requests.get(0);
+        assertEquals("vm-1", request.getInstanceName());
+        assertEquals(2, request.getNumCores());
+        assertEquals("2G", request.getMemSize());
+        assertEquals("10G", request.getDiskSpace());
+        assertEquals("#cloud-config", request.getCloudInitUserData());
+        assertEquals("daily", request.getRemoteName());
+        assertEquals("noble", request.getImage());
+    }
+
+    @Test
+    public void givenSeveralInstances_whenDelete_thenPurgeThemInOneCall() throws IOException {
+        transport.delete(List.of("vm-1", "vm-2"));
+
+        assertEquals(1, daemon.requests.size());
+        var request = (DeleteRequest) daemon.requests.get(0);
+        assertTrue(request.getPurge());
+        assertEquals(
+                List.of("vm-1", "vm-2"),
+                request.getInstanceSnapshotPairsList().stream()
+                        .map(InstanceSnapshotPair::getInstanceName)
+                        .toList());
+    }
+
+    @Test
+    public void givenCommandInsideInstance_whenExec_thenDelegate() throws IOException {
+        transport.exec("vm-1", List.of("true"));
+
+        verify(delegate).exec("vm-1", List.of("true"));
+    }
+}
@@ -0,0 +1,24 @@
+package io.hainenber.jenkins.multipass.sdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class MultipassSizeTest {
+    @Test
+    public void givenSizesWithUnits_whenParseBytes_thenReturnBinaryMultiples() {
+        assertEquals(2048L, MultipassSize.parseBytes("2048"));
+        assertEquals(512L * 1024 * 1024, MultipassSize.parseBytes("512M"));
+        assertEquals(1024L * 1024 * 1024, MultipassSize.parseBytes("1G"));
+        assertEquals(1536L * 1024 * 1024, MultipassSize.parseBytes("1.5G"));
+        assertEquals(10L * 1024 * 1024 * 1024, MultipassSize.parseBytes("10GiB"));
+        assertEquals(4L * 1024, MultipassSize.parseBytes("4kb"));
+    }
+
+    @Test
+    public void givenInvalidSize_whenParseBytes_thenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> MultipassSize.parseBytes("lots"));
+        assertThrows(IllegalArgumentException.class, () -> MultipassSize.parseBytes("-1G"));
+    }
+}